@@ -0,0 +1,128 @@
+package study.datajpa.benchmark;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.DataJpaApplication;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * 벤치마크용 스프링 컨텍스트
+ *
+ * 벤치마크마다 새 내장 H2(메모리)를 만들고 팀, 회원 데이터를 넣어둠
+ * 쿼리 관찰(datasource-proxy), 로그(org.hibernate.SQL)는 측정값을 흐리므로 끄고
+ * 실행된 SQL 개수는 하이버네이트 Statistics로 셈
+ * */
+public class BenchmarkContext implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+    private final Statistics statistics;
+    private final TransactionTemplate readOnlyTx;
+    private final TransactionTemplate tx;
+
+    private long invocations;
+    private long statementsAtStart;
+
+    private BenchmarkContext(ConfigurableApplicationContext context) {
+        this.context = context;
+        this.statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        this.tx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    /** 추가 설정은 application.yml 위에 덮어씀, 2차 캐시는 기본으로 끔 */
+    public static BenchmarkContext start(Map<String, Object> properties) {
+        Map<String, Object> defaults = new LinkedHashMap<>();
+        defaults.put("spring.datasource.url", "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        defaults.put("decorator.datasource.enabled", "false");
+        defaults.put("logging.level.root", "warn");
+        defaults.put("logging.level.org.hibernate.SQL", "off");
+        defaults.put("spring.jpa.properties.hibernate.cache.use_second_level_cache", "false");
+        defaults.put("spring.jpa.properties.hibernate.cache.use_query_cache", "false");
+        defaults.put("spring.jpa.properties.hibernate.generate_statistics", "true");
+        defaults.putAll(properties);
+
+        //properties(...)로 넘기면 application.yml보다 우선순위가 낮으므로 커맨드라인 인자로 넘김
+        String[] args = defaults.entrySet().stream()
+                .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DataJpaApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run(args);
+        return new BenchmarkContext(context);
+    }
+
+    /** 팀 teams개, 팀마다 회원 membersPerTeam명 */
+    public BenchmarkContext seed(int teams, int membersPerTeam) {
+        MemberRepository memberRepository = bean(MemberRepository.class);
+        TeamRepository teamRepository = bean(TeamRepository.class);
+
+        tx.executeWithoutResult(status -> {
+            List<Member> members = new ArrayList<>();
+            for (int t = 0; t < teams; t++) {
+                Team team = teamRepository.save(new Team("team" + t));
+                for (int m = 0; m < membersPerTeam; m++) {
+                    members.add(new Member("member" + t + "_" + m, m % 100, team));
+                }
+            }
+            memberRepository.saveAllBatched(members, 1000);
+        });
+        return this;
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /** 읽기 전용 트랜잭션 안에서 실행, 지연 로딩도 트랜잭션 안에서 끝나야 함 */
+    public <T> T readOnly(Supplier<T> work) {
+        invocations++;
+        return readOnlyTx.execute(status -> work.get());
+    }
+
+    /** 쓰기 가능한(기본) 트랜잭션, 읽기 전용과 비교할 때 */
+    public <T> T readWrite(Supplier<T> work) {
+        invocations++;
+        return tx.execute(status -> work.get());
+    }
+
+    public void resetCounters() {
+        invocations = 0;
+        statementsAtStart = statistics.getPrepareStatementCount();
+    }
+
+    /** 호출 한 번당 실행된 SQL 개수 */
+    public double statementsPerInvocation() {
+        if (invocations == 0) {
+            return 0;
+        }
+        return (double) (statistics.getPrepareStatementCount() - statementsAtStart) / invocations;
+    }
+
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
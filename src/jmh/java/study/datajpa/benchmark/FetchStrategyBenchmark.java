@@ -0,0 +1,141 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Blackhole;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 연관관계 조회 방식 비교
+ *
+ * 회원 -> 팀 (다대일)
+ * 지연 로딩, 페치 조인, @EntityGraph, @NamedEntityGraph
+ * 팀 -> 회원 (일대다 컬렉션)
+ * 지연 로딩, 페치 조인, @EntityGraph
+ *
+ * batchFetchSize가 0이 아니면 hibernate.default_batch_fetch_size를 켜서
+ * 지연 로딩할 때 프록시/컬렉션을 in 절로 한 번에 초기화 (batch fetching)
+ *
+ * 결과
+ * 처리량은 JMH 기본 출력, 할당률은 -prof gc (build.gradle jmh 태스크 기본값)
+ * 호출 한 번당 SQL 개수는 trial이 끝날 때 출력
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FetchStrategyBenchmark {
+
+    @Param({"10", "100"})
+    int teams;
+
+    @Param({"10", "100"})
+    int membersPerTeam;
+
+    @Param({"0", "100"})
+    int batchFetchSize;
+
+    BenchmarkContext context;
+    MemberRepository memberRepository;
+    TeamRepository teamRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(Map.of(
+                "spring.jpa.properties.hibernate.default_batch_fetch_size", String.valueOf(batchFetchSize)))
+                .seed(teams, membersPerTeam);
+        memberRepository = context.bean(MemberRepository.class);
+        teamRepository = context.bean(TeamRepository.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        context.resetCounters();
+    }
+
+    @TearDown(Level.Iteration)
+    public void report(BenchmarkParams params) {
+        System.out.printf("%n[%s] statements/op = %.2f%n",
+                params.getBenchmark(), context.statementsPerInvocation());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /** 회원만 조회하고 팀은 프록시, 팀 이름을 꺼낼 때 팀 조회 (N+1, batch fetching이면 in 절) */
+    @Benchmark
+    public void memberLazy(Blackhole bh) {
+        context.readOnly(() -> touchTeams(memberRepository.findMemberCustom(), bh));
+    }
+
+    @Benchmark
+    public void memberFetchJoin(Blackhole bh) {
+        context.readOnly(() -> touchTeams(memberRepository.findMemberFetchJoin(), bh));
+    }
+
+    @Benchmark
+    public void memberEntityGraph(Blackhole bh) {
+        context.readOnly(() -> touchTeams(memberRepository.findMemberEntityGraph(), bh));
+    }
+
+    @Benchmark
+    public void memberNamedEntityGraph(Blackhole bh) {
+        context.readOnly(() -> touchTeams(memberRepository.findMemberNamedEntityGraph(), bh));
+    }
+
+    /** 팀만 조회하고 회원 컬렉션은 꺼낼 때 초기화 */
+    @Benchmark
+    public void teamLazy(Blackhole bh) {
+        context.readOnly(() -> touchMembers(teamRepository.findAll(), bh));
+    }
+
+    @Benchmark
+    public void teamFetchJoin(Blackhole bh) {
+        context.readOnly(() -> touchMembers(teamRepository.findTeamFetchJoin(), bh));
+    }
+
+    @Benchmark
+    public void teamEntityGraph(Blackhole bh) {
+        context.readOnly(() -> touchMembers(teamRepository.findTeamEntityGraph(), bh));
+    }
+
+    private Void touchTeams(List<Member> members, Blackhole bh) {
+        for (Member member : members) {
+            Team team = member.getTeam();
+            bh.consume(team == null ? null : team.getName());
+        }
+        return null;
+    }
+
+    private Void touchMembers(List<Team> teams, Blackhole bh) {
+        for (Team team : teams) {
+            for (Member member : team.getMembers()) {
+                bh.consume(member.getUsername());
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,105 @@
+package study.datajpa.benchmark;
+
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 영속성 컨텍스트에 회원 entities명을 올려두고 그 중 100명만 바꾼 뒤 flush 한 번
+ *
+ * 향상 없음 flush 때 엔티티마다 스냅샷과 모든 필드를 비교, 관리 엔티티 수에 비례
+ * 향상(build.gradle hibernate.enhance) 바뀐 필드를 엔티티가 직접 기록하고 있어서 비교 없이 dirty 엔티티만 찾음
+ * update 100건은 양쪽이 같으므로 차이는 dirty check 시간
+ *
+ * 메모리는 조회 전후 힙 사용량 차이를 회원 한 명당 바이트로 출력 (스냅샷 + 엔티티 + 팀)
+ * 향상해도 스냅샷(loadedState)은 그대로 남고, flush도 엔티티마다 이벤트와 값 배열을 만드는 건 같아서
+ * 힙 사용량과 gc.alloc.rate.norm 은 거의 같음, 줄어드는 건 필드 비교 시간
+ * 향상 여부는 빌드에서 정해지므로 두 번 돌려서 비교
+ * ./gradlew jmh -PjmhArgs='FlushBenchmark'
+ * ./gradlew jmh -PenhanceEntities=false -PjmhArgs='FlushBenchmark'
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FlushBenchmark {
+
+    private static final int DIRTY = 100;
+
+    @Param({"10000", "100000", "1000000"})
+    int entities;
+
+    BenchmarkContext context;
+    EntityManagerFactory emf;
+    EntityManager em;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(Map.of()).seed(entities / 100, 100);
+        emf = context.bean(EntityManagerFactory.class);
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long before = usedHeap(memory);
+        load();
+        long after = usedHeap(memory);
+        System.out.printf("%n[enhanced=%s] retained bytes/entity = %.1f%n",
+                SelfDirtinessTracker.class.isAssignableFrom(Member.class), (double) (after - before) / entities);
+        rollback();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /** 매번 새 영속성 컨텍스트, 측정에는 flush만 들어감 */
+    @Setup(Level.Invocation)
+    public void load() {
+        em = emf.createEntityManager();
+        em.getTransaction().begin();
+        List<Member> members = em.createQuery("select m from Member m", Member.class).getResultList();
+        int step = members.size() / DIRTY;
+        for (int i = 0; i < members.size(); i += step) {
+            Member member = members.get(i);
+            member.setAge(member.getAge() + 1);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void rollback() {
+        em.getTransaction().rollback();
+        em.close();
+    }
+
+    @Benchmark
+    public void flush() {
+        em.flush();
+    }
+
+    private static long usedHeap(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,132 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.KeysetSlice;
+import study.datajpa.repository.MemberKeyset;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * offset 페이징과 keyset 페이징의 페이지 깊이별 조회 시간 (MemberRepository.findByKeyset)
+ *
+ * username asc, member_id asc 정렬, 페이지마다 size + 1개 (다음 페이지 여부)
+ * offsetQuery, keysetQuery 는 미리 만든 JPQL을 같은 EntityManager로, 쿼리만 비교
+ * keysetRepository 는 실제로 쓰는 findByKeyset, 리포지토리 프록시와 JPQL 만드는 비용까지
+ * count 쿼리는 둘 다 없음
+ *
+ * setUp에서 keyset 조건의 실행 계획(explain)을 출력, (username, member_id) 인덱스를 타는지 확인
+ *
+ * 실행 예) ./gradlew jmh -PjmhArgs='KeysetPagingBenchmark -p members=1000000'
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class KeysetPagingBenchmark {
+
+    private static final String OFFSET_JPQL = "select m from Member m order by m.username asc, m.id asc";
+    private static final String KEYSET_JPQL = "select m from Member m"
+            + " where m.username >= :value and (m.username > :value or m.id > :id)"
+            + " order by m.username asc, m.id asc";
+
+    @Param({"100000"})
+    int members;
+
+    /** 몇 번째 페이지인지, 회원 수 / size 보다 작아야 함 */
+    @Param({"0", "100", "1000", "4000"})
+    int page;
+
+    @Param({"20"})
+    int size;
+
+    BenchmarkContext context;
+    MemberRepository memberRepository;
+    //트랜잭션에 묶인 EntityManager를 찾아 쓰는 공유 프록시, 리포지토리가 주입받는 것과 같음
+    EntityManager em;
+    MemberKeyset keyset;
+    String lastUsername;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //팀 하나에 회원 100명
+        context = BenchmarkContext.start(Map.of()).seed(members / 100, 100);
+        memberRepository = context.bean(MemberRepository.class);
+        em = SharedEntityManagerCreator.createSharedEntityManager(context.bean(EntityManagerFactory.class));
+
+        //keyset 은 직전 페이지의 마지막 회원부터, 첫 페이지는 조건 없음
+        MemberKeyset first = MemberKeyset.first(MemberKeyset.SortKey.USERNAME, Sort.Direction.ASC);
+        keyset = page == 0 ? first : context.readOnly(() -> first.after(offset(page * size - 1, 1).get(0)));
+        lastUsername = (String) keyset.getLastValue();
+
+        if (page > 0) {
+            System.out.printf("%nexplain keyset: %s%n", context.readOnly(this::explain));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Member> offsetQuery() {
+        return context.readOnly(() -> offset(page * size, size + 1));
+    }
+
+    @Benchmark
+    public List<Member> keysetQuery() {
+        if (page == 0) {
+            return context.readOnly(() -> offset(0, size + 1));
+        }
+        return context.readOnly(() -> em.createQuery(KEYSET_JPQL, Member.class)
+                .setParameter("value", lastUsername)
+                .setParameter("id", keyset.getLastId())
+                .setMaxResults(size + 1)
+                .getResultList());
+    }
+
+    @Benchmark
+    public KeysetSlice<Member> keysetRepository() {
+        return context.readOnly(() -> memberRepository.findByKeyset(keyset, size));
+    }
+
+    private List<Member> offset(int firstResult, int maxResults) {
+        return em.createQuery(OFFSET_JPQL, Member.class)
+                .setFirstResult(firstResult)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    //h2 실행 계획, 인덱스 이름과 정렬에 인덱스를 쓰는지(index sorted)
+    private Object explain() {
+        return em.createNativeQuery("explain select * from member"
+                        + " where username >= ?1 and (username > ?1 or member_id > ?2)"
+                        + " order by username asc, member_id asc limit ?3")
+                .setParameter(1, lastUsername)
+                .setParameter(2, keyset.getLastId())
+                .setParameter(3, size + 1)
+                .getSingleResult();
+    }
+}
@@ -0,0 +1,89 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /members 페이지 응답 만들기 비교
+ *
+ * entityThenMap 기존 MemberController.list, 엔티티 조회 후 new MemberDto(member), 팀 이름은 null
+ * entityThenMapWithTeam 엔티티 조회 후 팀 이름까지 채움, 팀 지연 로딩
+ * dtoProjection findMemberDtoPage, 생성자 표현식으로 바로 dto
+ *
+ * 지연(평균 시간)과 함께 -prof gc 의 gc.alloc.rate.norm(호출 한 번당 할당 바이트)을 비교
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemberDtoPagingBenchmark {
+
+    @Param({"20", "200"})
+    int pageSize;
+
+    BenchmarkContext context;
+    MemberRepository memberRepository;
+    Pageable pageable;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(Map.of()).seed(100, 100);
+        memberRepository = context.bean(MemberRepository.class);
+        pageable = PageRequest.of(10, pageSize, Sort.by("id"));
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        context.resetCounters();
+    }
+
+    @TearDown(Level.Iteration)
+    public void report(BenchmarkParams params) {
+        System.out.printf("%n[%s] statements/op = %.2f%n",
+                params.getBenchmark(), context.statementsPerInvocation());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<MemberDto> entityThenMap() {
+        return context.readOnly(() -> memberRepository.findAll(pageable).map(MemberDto::new));
+    }
+
+    @Benchmark
+    public Page<MemberDto> entityThenMapWithTeam() {
+        return context.readOnly(() -> memberRepository.findAll(pageable)
+                .map(m -> new MemberDto(m.getId(), m.getUsername(), m.getTeam() == null ? null : m.getTeam().getName())));
+    }
+
+    @Benchmark
+    public Page<MemberDto> dtoProjection() {
+        return context.readOnly(() -> memberRepository.findMemberDtoPage(pageable));
+    }
+}
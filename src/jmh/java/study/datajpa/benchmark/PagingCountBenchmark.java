@@ -0,0 +1,117 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.CountMode;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Page count 쿼리 비교 (CountMode)
+ *
+ * 기존 Page(findAll(pageable), findByAge)와 EXACT, CACHED, ESTIMATED
+ * 가운데 페이지를 조회하므로 매번 전체 개수가 필요함
+ * lastPage는 마지막 페이지가 size보다 적어서 count 없이 끝나는 경우
+ *
+ * 실행 예) ./gradlew jmh -PjmhArgs='PagingCountBenchmark -p members=100000'
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PagingCountBenchmark {
+
+    @Param({"10000", "100000"})
+    int members;
+
+    //회원 수로 나누어 떨어지지 않게, 마지막 페이지가 size보다 적어야 함
+    @Param({"30"})
+    int pageSize;
+
+    BenchmarkContext context;
+    MemberRepository memberRepository;
+    Pageable middlePage;
+    Pageable lastPage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //나이는 0 ~ 99, 나이 조건이면 전체의 1%
+        context = BenchmarkContext.start(Map.of()).seed(members / 100, 100);
+        memberRepository = context.bean(MemberRepository.class);
+        middlePage = PageRequest.of(members / pageSize / 2, pageSize, Sort.by("id"));
+        lastPage = PageRequest.of(members / pageSize, pageSize, Sort.by("id"));
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        context.resetCounters();
+    }
+
+    @TearDown(Level.Iteration)
+    public void report(BenchmarkParams params) {
+        System.out.printf("%n[%s] statements/op = %.2f%n",
+                params.getBenchmark(), context.statementsPerInvocation());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /** MemberController.list 기존 방식 */
+    @Benchmark
+    public Page<Member> findAllPageable() {
+        return context.readOnly(() -> memberRepository.findAll(middlePage));
+    }
+
+    @Benchmark
+    public Page<Member> findAllExact() {
+        return context.readOnly(() -> memberRepository.findAllPage(middlePage, CountMode.EXACT));
+    }
+
+    @Benchmark
+    public Page<Member> findAllCached() {
+        return context.readOnly(() -> memberRepository.findAllPage(middlePage, CountMode.CACHED));
+    }
+
+    @Benchmark
+    public Page<Member> findAllEstimated() {
+        return context.readOnly(() -> memberRepository.findAllPage(middlePage, CountMode.ESTIMATED));
+    }
+
+    @Benchmark
+    public Page<Member> findAllLastPage() {
+        return context.readOnly(() -> memberRepository.findAllPage(lastPage, CountMode.EXACT));
+    }
+
+    @Benchmark
+    public Page<Member> findByAge() {
+        return context.readOnly(() -> memberRepository.findByAge(10, PageRequest.of(0, pageSize)));
+    }
+
+    @Benchmark
+    public Page<Member> findPageByAgeCached() {
+        return context.readOnly(() -> memberRepository.findPageByAge(10, PageRequest.of(0, pageSize), CountMode.CACHED));
+    }
+}
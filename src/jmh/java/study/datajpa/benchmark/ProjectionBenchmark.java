@@ -0,0 +1,81 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import study.datajpa.repository.GeneratedProjectionFactory;
+import study.datajpa.repository.MemberProjection;
+import study.datajpa.repository.NestedClosedProjection;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 인터페이스 프로젝션 만들기 + getter 읽기 비교, db 없이 쿼리 결과 한 건(Map)으로만
+ *
+ * proxy 스프링 기본 SpelAwareProxyProjectionFactory, 결과마다 jdk 프록시, getter마다 인터셉터 체인
+ * generated GeneratedProjectionFactory, 미리 만든 구현 클래스 생성자 한 번, getter는 필드 반환
+ *
+ * flat MemberProjection(id, username, teamName), nested NestedClosedProjection(username, team.name)
+ * 실행 예) ./gradlew jmh -PjmhArgs='ProjectionBenchmark'
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    @Param({"proxy", "generated"})
+    String factory;
+
+    ProjectionFactory projectionFactory;
+    Map<String, Object> flat;
+    Map<String, Object> nested;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        projectionFactory = "generated".equals(factory)
+                ? new GeneratedProjectionFactory()
+                : new SpelAwareProxyProjectionFactory();
+
+        //TupleBackedMap 처럼 컬럼 별칭 -> 값
+        flat = new HashMap<>();
+        flat.put("id", 1L);
+        flat.put("username", "member1");
+        flat.put("teamName", "teamA");
+
+        nested = new HashMap<>();
+        nested.put("username", "member1");
+        nested.put("team", Map.of("name", "teamA"));
+    }
+
+    @Benchmark
+    public void flat(Blackhole bh) {
+        MemberProjection projection = projectionFactory.createProjection(MemberProjection.class, flat);
+        bh.consume(projection.getId());
+        bh.consume(projection.getUsername());
+        bh.consume(projection.getTeamName());
+    }
+
+    @Benchmark
+    public void nested(Blackhole bh) {
+        NestedClosedProjection projection = projectionFactory.createProjection(NestedClosedProjection.class, nested);
+        bh.consume(projection.getUsername());
+        bh.consume(projection.getTeam().getName());
+    }
+}
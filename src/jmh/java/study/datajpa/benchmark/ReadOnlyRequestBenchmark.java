@@ -0,0 +1,105 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.repository.CountMode;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.transaction.ReadOnlySessionScope;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * @ReadOnlyRequest 전후 /members?count=CACHED 요청 하나
+ *
+ * OSIV 처럼 요청마다 영속성 컨텍스트를 만들어서 스레드에 묶고, 트랜잭션 없이 findAllPage로 조회
+ * 그 다음 같은 영속성 컨텍스트에서 기본(읽기/쓰기) 트랜잭션 하나, 서비스의 @Transactional 메서드를 부르는 것처럼
+ * defaultSession 엔티티마다 변경 감지용 스냅샷을 남기고 커밋할 때 페이지의 엔티티를 전부 dirty check
+ * readOnlySession ReadOnlySessionScope, 스냅샷 없이 읽기 전용이라 커밋할 때 비교하지 않음
+ *
+ * -prof gc 의 gc.alloc.rate.norm(요청 한 번당 할당 바이트)을 비교
+ * Member 속성은 모두 불변 타입이라 스냅샷을 만들 때 값 복사가 없으므로 할당량은 거의 같음
+ * 차이는 커밋할 때 dirty check 시간, 요청이 끝날 때까지 영속성 컨텍스트에 남는 스냅샷 배열
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadOnlyRequestBenchmark {
+
+    @Param({"20", "200"})
+    int pageSize;
+
+    BenchmarkContext context;
+    EntityManagerFactory emf;
+    MemberRepository memberRepository;
+    Pageable pageable;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(Map.of()).seed(100, 100);
+        emf = context.bean(EntityManagerFactory.class);
+        memberRepository = context.bean(MemberRepository.class);
+        pageable = PageRequest.of(10, pageSize, Sort.by("id"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<MemberDto> defaultSession() {
+        return request(em -> handle());
+    }
+
+    @Benchmark
+    public Page<MemberDto> readOnlySession() {
+        return request(em -> {
+            try (ReadOnlySessionScope ignored = ReadOnlySessionScope.open(em)) {
+                return handle();
+            }
+        });
+    }
+
+    private Page<MemberDto> handle() {
+        Page<MemberDto> page = memberRepository.findAllPage(pageable, CountMode.CACHED).map(MemberDto::new);
+        context.readWrite(() -> memberRepository.findPageVersion(pageable, CountMode.CACHED));
+        return page;
+    }
+
+    /** OpenEntityManagerInViewInterceptor 와 같이 요청 동안 영속성 컨텍스트를 스레드에 묶음 */
+    private <T> T request(Function<EntityManager, T> handler) {
+        EntityManager em = emf.createEntityManager();
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(em));
+        try {
+            return handler.apply(em);
+        } finally {
+            TransactionSynchronizationManager.unbindResource(emf);
+            em.close();
+        }
+    }
+}
@@ -3,21 +3,28 @@ package study.datajpa;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.data.auditing.DateTimeProvider;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import study.datajpa.auditing.AuditStamps;
+import study.datajpa.repository.GeneratedProjectionFactory;
+import study.datajpa.repository.ProjectionJpaRepositoryFactoryBean;
 
 import java.io.*;
+import java.time.Clock;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Auditing
  * 스프링 데이터 JPA 사용, 생성시간 수정시간 알기 위해
  *
  * Auditing 어노테이션을 활성화시킴
+ * 시간은 LocalDateTime.now() 대신 트랜잭션마다 한 번 구하는 auditingDateTimeProvider
  */
-@EnableJpaAuditing
+@EnableJpaAuditing(dateTimeProviderRef = "auditingDateTimeProvider")
 /**
  * 공통 인터페이스 설정, 스프링 부트 사용시 생략 가능
  * 스프링 부트 사용시 @SpringBootApplication 위치를 지정(해당 패키지와 하위 패키지 인식)
@@ -25,6 +32,10 @@ import java.util.UUID;
  * 만약 위치가 달라지면 @EnableJpaRepositories 필요
  */
 //@EnableJpaRepositories(basePackages = "jpabook.jpashop.repository")
+/**
+ * 인터페이스 프로젝션 구현 클래스를 프록시 대신 미리 만들어 쓰는 팩토리 빈 (GeneratedProjectionFactory)
+ */
+@EnableJpaRepositories(repositoryFactoryBeanClass = ProjectionJpaRepositoryFactoryBean.class)
 @SpringBootApplication
 public class DataJpaApplication {
 
@@ -39,11 +50,39 @@ public class DataJpaApplication {
 	 *
 	 */
 	@Bean
-	public AuditorAware<String> auditorProvider() {
+	public AuditorAware<String> auditorProvider(AuditStamps auditStamps) {
 		/**
 		 * 세션정보를 꺼내거나, httpsession에서 어떻게든 이걸 꺼내거나 해서 userid를 넣어
 		 * BaseEntity 가 등록되거나 수정이 될때 이 메서드를 호출해서 결과물을 꺼내가 등록자 수정자의 값이 채워짐
+		 *
+		 * 엔티티마다 구하지 않고 트랜잭션(벌크면 청크)마다 한 번 구한 값을 재사용 (AuditStamps)
 		 */
-		return () -> Optional.of(UUID.randomUUID().toString());
+		return () -> Optional.of(auditStamps.current().getAuditor());
+	}
+
+	@Bean
+	public DateTimeProvider auditingDateTimeProvider(AuditStamps auditStamps) {
+		return () -> Optional.of(auditStamps.current().getTime());
+	}
+
+	/**
+	 * 리포지토리 프록시(ProjectionJpaRepositoryFactoryBean)와 MemberRepositoryImpl이 같이 쓰는 프로젝션 팩토리
+	 * 프로젝션마다 만든 구현 클래스 캐시를 하나만 둠
+	 */
+	@Bean
+	public GeneratedProjectionFactory projectionFactory() {
+		return new GeneratedProjectionFactory();
+	}
+
+	/**
+	 * 등록자는 예제라 임의의 UUID
+	 * UUID.randomUUID()는 SecureRandom 락을 잡으므로 ThreadLocalRandom으로 만듬, 보안용 값이 아니므로 충분
+	 */
+	@Bean
+	public AuditStamps auditStamps() {
+		return new AuditStamps(() -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			return new UUID(random.nextLong(), random.nextLong()).toString();
+		}, Clock.systemDefaultZone());
 	}
 }
@@ -0,0 +1,28 @@
+package study.datajpa.auditing;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * 등록자/수정자와 등록시간/수정시간 한 벌
+ * 트랜잭션 하나, 벌크 청크 하나 동안 같은 값을 씀 (AuditStamps)
+ * */
+@Getter
+@ToString
+public class AuditStamp {
+
+    private final String auditor;
+    private final LocalDateTime time;
+
+    public AuditStamp(String auditor, LocalDateTime time) {
+        this.auditor = auditor;
+        this.time = time;
+    }
+
+    /** 같은 등록자로 시간만 새로, 벌크 다음 청크 */
+    public AuditStamp withTime(LocalDateTime time) {
+        return new AuditStamp(auditor, time);
+    }
+}
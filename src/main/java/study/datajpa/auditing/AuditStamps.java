@@ -0,0 +1,148 @@
+package study.datajpa.auditing;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+/**
+ * Auditing 값(등록자, 시간)을 트랜잭션 하나 또는 벌크 청크 하나에 한 번만 구함
+ *
+ * 원래는 엔티티 저장/수정마다 AuditorAware(UUID.randomUUID, SecureRandom 락)와 LocalDateTime.now()를 호출
+ * 대량 저장에서는 엔티티 수만큼 호출되고 여러 스레드가 SecureRandom 락에서 기다림
+ *
+ * 값을 찾는 순서
+ * 1. bulk() 로 연 벌크 범위가 있으면 그 값, 청크 전체가 같은 시간 같은 등록자
+ * 2. 트랜잭션 안이면 트랜잭션에 묶어둔 값, 처음 쓸 때 한 번 구하고 트랜잭션이 끝나면 버림
+ * 3. 트랜잭션 밖이면 매번 새로
+ *
+ * 스프링 데이터 JPA Auditing은 DataJpaApplication의 auditorProvider, auditingDateTimeProvider가 이걸 사용
+ * 순수 JPA JpaBaseEntity 는 currentTime()
+ * */
+public class AuditStamps {
+
+    private static final ThreadLocal<BulkScope> BULK = new ThreadLocal<>();
+
+    private final Supplier<String> auditorSource;
+    private final Clock clock;
+
+    public AuditStamps(Supplier<String> auditorSource, Clock clock) {
+        this.auditorSource = auditorSource;
+        this.clock = clock;
+    }
+
+    public AuditStamp current() {
+        BulkScope bulk = BULK.get();
+        if (bulk != null) {
+            return bulk.stamp;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return newStamp();
+        }
+
+        AuditStamp stamp = (AuditStamp) TransactionSynchronizationManager.getResource(this);
+        if (stamp == null) {
+            stamp = newStamp();
+            TransactionSynchronizationManager.bindResource(this, stamp);
+            TransactionSynchronizationManager.registerSynchronization(new StampSynchronization(stamp));
+        }
+        return stamp;
+    }
+
+    /**
+     * 벌크 범위, 닫을 때까지 이 스레드에서 저장/수정되는 엔티티는 모두 같은 등록자 같은 시간
+     * 청크마다 시간을 새로 찍으려면 nextChunk(), 등록자는 그대로
+     *
+     * try (AuditStamps.BulkScope bulk = auditStamps.bulk()) {
+     *     ... persist, 청크마다 flush 후 bulk.nextChunk()
+     * }
+     * */
+    public BulkScope bulk() {
+        BulkScope scope = new BulkScope(BULK.get(), current());
+        BULK.set(scope);
+        return scope;
+    }
+
+    /**
+     * 지금 쓰고 있는 벌크/트랜잭션 시간, 없으면 LocalDateTime.now()
+     * 스프링 빈을 주입받을 수 없는 엔티티 콜백(JpaBaseEntity)에서 사용
+     * */
+    public static LocalDateTime currentTime() {
+        BulkScope bulk = BULK.get();
+        if (bulk != null) {
+            return bulk.stamp.getTime();
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+                if (resource instanceof AuditStamp) {
+                    return ((AuditStamp) resource).getTime();
+                }
+            }
+        }
+        return LocalDateTime.now();
+    }
+
+    private AuditStamp newStamp() {
+        return new AuditStamp(auditorSource.get(), LocalDateTime.now(clock));
+    }
+
+    public class BulkScope implements AutoCloseable {
+
+        private final BulkScope previous;
+        private AuditStamp stamp;
+
+        private BulkScope(BulkScope previous, AuditStamp stamp) {
+            this.previous = previous;
+            this.stamp = stamp;
+        }
+
+        public AuditStamp getStamp() {
+            return stamp;
+        }
+
+        /** 다음 청크, 등록자는 그대로 시간만 새로 */
+        public AuditStamp nextChunk() {
+            stamp = stamp.withTime(LocalDateTime.now(clock));
+            return stamp;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                BULK.remove();
+            } else {
+                BULK.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 트랜잭션이 끝나면 묶어둔 값을 버림
+     * REQUIRES_NEW 로 트랜잭션이 잠시 멈추면 같이 풀었다가 다시 묶음, 새 트랜잭션은 자기 값을 씀
+     * */
+    private class StampSynchronization implements TransactionSynchronization {
+
+        private final AuditStamp stamp;
+
+        StampSynchronization(AuditStamp stamp) {
+            this.stamp = stamp;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResourceIfPossible(AuditStamps.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(AuditStamps.this, stamp);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(AuditStamps.this);
+        }
+    }
+}
@@ -1,36 +1,80 @@
 package study.datajpa.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.PageVersion;
+import study.datajpa.dto.ResourceVersion;
 import study.datajpa.entity.Member;
 import study.datajpa.entity.Team;
+import study.datajpa.repository.CountMode;
+import study.datajpa.repository.KeysetSlice;
+import study.datajpa.repository.MemberKeyset;
+import study.datajpa.repository.MemberLookup;
 import study.datajpa.repository.MemberRepository;
+import study.datajpa.transaction.ReadOnlyRequest;
 
 import javax.annotation.PostConstruct;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * Web 확장 - 도메인 클래스 컨버터
  * HTTP 파라미터로 넘어온 엔티티의 아이디로 엔티티 객체를 찾아서 바인딩
+ *
+ * 조회만 하는 메서드는 @ReadOnlyRequest, 요청 동안 영속성 컨텍스트가 스냅샷을 만들지 않고 flush 하지 않음
  * */
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
     private final MemberRepository memberRepository;
+    private final MemberLookup memberLookup;
+    private final ObjectMapper objectMapper;
+
+    /** export 할 때 db에서 한 번에 가져오는 row 수 */
+    @Value("${datajpa.export.fetch-size:1000}")
+    private int exportFetchSize;
 
-    /** 도메인 클래스 컨버터 사용 전 */
+    /**
+     * 도메인 클래스 컨버터 사용 전
+     * 같은 id로 동시에 몰리는 요청은 db 조회 한 번을 같이 씀 (MemberLookup)
+     *
+     * 조건부 GET, 응답에 ETag(id + version), Last-Modified(수정시간)
+     * 다음 요청의 If-None-Match / If-Modified-Since 가 같으면 회원을 조회하지 않고 304
+     * 버전 확인은 select member_id, version, last_modified_date 한 줄만
+     * */
     @GetMapping("/members/{id}")
-    public String findMember(@PathVariable("id") Long id) {
+    @ReadOnlyRequest
+    public String findMember(@PathVariable("id") Long id, WebRequest request) {
+        ResourceVersion version = memberRepository.findVersionById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "회원이 없습니다: " + id));
+        //바뀐게 없으면 스프링이 304로 응답, 바디 없음
+        if (request.checkNotModified(version.etag("member"), version.lastModifiedMillis())) {
+            return null;
+        }
+
         //id값을 가지고 객체를 찾음
-        Member member = memberRepository.findById(id).get();
+        MemberDto member = memberLookup.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "회원이 없습니다: " + id));
 
         //@RestController이므로 화면에 띄우기
         return member.getUsername();
@@ -49,6 +93,7 @@ public class MemberController {
      * 트랜잭션이 없는 상태이기 때문에
      * */
     @GetMapping("/members2/{id}")
+    @ReadOnlyRequest
     public String findMember2(@PathVariable("id") Member member) {
 
         return member.getUsername();
@@ -70,15 +115,37 @@ public class MemberController {
      * 파라미터 추가 ( asc 생략 가능)
      *
      * 반환타입이 page이므로 totalcountquery가 결과로 나감
+     * count=CACHED 면 count 결과를 잠시 재사용, count=ESTIMATED 면 db 통계의 추정값 (CountMode)
+     *
+     * 조건부 GET, ETag는 조회한 페이지의 회원 id, version, 가장 최근 수정시간 + 전체 개수 (PageVersion)
+     * If-None-Match가 없으면 버전 확인 쿼리 없이 페이지를 조회하고 그 결과로 ETag
+     * If-None-Match가 있으면 같은 정렬, offset, limit으로 id, version, 수정시간만 먼저 조회(findPageVersion)해서 같으면 304
+     * 삭제는 수정시간으로 알 수 없으므로 Last-Modified는 쓰지 않음
      * */
     @GetMapping("/members")
+    @ReadOnlyRequest
     /**
      * @PageableDefault는 개별설정, 글로벌설정(yml파일)보다 우선순위 높음
      * */
-    public Page<MemberDto> list(@PageableDefault(size = 5) Pageable pageable) {
+    public Page<MemberDto> list(@PageableDefault(size = 5) Pageable pageable,
+                                @RequestParam(defaultValue = "EXACT") CountMode count,
+                                WebRequest request) {
+        String etagPrefix = etagPrefix("members", pageable, count);
+        boolean conditional = request.getHeader(HttpHeaders.IF_NONE_MATCH) != null;
+        if (conditional && request.checkNotModified(memberRepository.findPageVersion(pageable, count).etag(etagPrefix))) {
+            return null;
+        }
         //findAll의 PagingAndSortingRepository로 pageable넘겨주기만 하면됨
 
-        Page<Member> page = memberRepository.findAll(pageable);
+        Page<Member> page = count == CountMode.EXACT
+                ? memberRepository.findAll(pageable)
+                : memberRepository.findAllPage(pageable, count);
+        //조건부가 아니면 여기서 ETag 헤더만 씀, 조건부면 위에서 이미 씀
+        if (!conditional) {
+            request.checkNotModified(PageVersion.of(page.map(member -> new ResourceVersion(member.getId(),
+                    member.getVersion(), member.getLastModifiedDate())).getContent(),
+                    page.getTotalElements()).etag(etagPrefix));
+        }
         //엔티티를 노출하지말고 dto로 변환해야함
 //        Page<MemberDto> pageDto = page.map(member -> new MemberDto(member.getId(), member.getUsername(),null ));
         Page<MemberDto> pageDto = page.map(member -> new MemberDto(member));
@@ -86,6 +153,128 @@ public class MemberController {
         return pageDto;
     }
 
+    /**
+     * /members 와 같은 페이징을 스트리밍으로, 팀 이름 포함
+     * 예) /members/stream?page=0&size=2000&sort=username
+     *
+     * Page<MemberDto>를 반환하면 페이지 전체를 List로 만들고 나서 직렬화를 시작하므로
+     * 첫 바이트가 나가는 시간과 메모리 사용량이 페이지 크기(max-page-size 2000)만큼 늘어남
+     * 여기서는 db 커서에서 한 건 읽을 때마다 JsonGenerator로 바로 씀 (scrollPage, MemberPageWriter)
+     * 응답은 content 뒤에 page 정보만 짧게, Page의 pageable, sort 메타데이터는 없음
+     * 조건부 GET은 /members 와 같은 PageVersion, 다만 헤더는 바디보다 먼저 나가야 하므로
+     * If-None-Match가 없어도 페이지 크기만큼의 버전 확인 쿼리(findPageVersion)를 먼저 실행
+     * */
+    @GetMapping("/members/stream")
+    public ResponseEntity<StreamingResponseBody> streamList(@PageableDefault(size = 5) Pageable pageable,
+                                                            @RequestParam(defaultValue = "EXACT") CountMode count,
+                                                            WebRequest request) {
+        PageVersion version = memberRepository.findPageVersion(pageable, count);
+        if (request.checkNotModified(version.etag(etagPrefix("members-stream", pageable, count)))) {
+            return null;
+        }
+
+        StreamingResponseBody body = out -> {
+            MemberPageWriter writer = new MemberPageWriter(objectMapper.getFactory().createGenerator(out));
+            writer.start();
+            long total = memberRepository.scrollPage(pageable, count, writer::write);
+            writer.finish(pageable, total);
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    //같은 데이터라도 페이지, 정렬, count 방식이 다르면 응답이 다르므로 ETag에 같이
+    private static String etagPrefix(String name, Pageable pageable, CountMode count) {
+        return name + "-" + Integer.toHexString(Objects.hash(pageable, count));
+    }
+
+    /**
+     * 여러 회원을 한 번에, /members/{id}를 id마다 부르는 대신
+     * 예) /members?ids=3,1,2 -> 3, 1, 2 순서로, 없는 id는 빠짐
+     * 회원과 팀을 각각 batch-size개씩 in 절로 조회 (findAllByIdBatched)
+     * ids 파라미터가 있으면 페이징 /members 대신 여기로
+     * */
+    @GetMapping(value = "/members", params = "ids")
+    @ReadOnlyRequest
+    public List<MemberDto> findMembers(@RequestParam List<Long> ids) {
+        //yml의 max-page-size와 같은 한도
+        if (ids.size() > 2000) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids는 2000개 이하여야 합니다");
+        }
+        return memberRepository.findAllByIdBatched(ids).stream()
+                .map(m -> new MemberDto(m.getId(), m.getUsername(), m.getTeam() == null ? null : m.getTeam().getName()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * /members 와 같은 페이징인데 엔티티 없이 dto로 바로 조회, 팀 이름까지
+     * 예) /members/dto?page=0&size=20&sort=username,desc
+     * */
+    @GetMapping("/members/dto")
+    @ReadOnlyRequest
+    public Page<MemberDto> dtoList(@PageableDefault(size = 5) Pageable pageable) {
+        return memberRepository.findMemberDtoPage(pageable);
+    }
+
+    /**
+     * Keyset(seek) 페이징
+     *
+     * page 번호 대신 응답의 nextToken을 다음 요청에 token으로 넘김
+     * 예) /members/keyset?sort=username&direction=ASC&size=20
+     *     /members/keyset?size=20&token={이전 응답의 nextToken}
+     * token에 정렬 조건이 들어있으므로 다음 페이지부터는 sort, direction을 안 넘겨도 됨
+     * 몇 번째 페이지든 인덱스에서 바로 시작하므로 뒤 페이지로 가도 느려지지 않음, 대신 페이지 건너뛰기는 안됨
+     * */
+    @GetMapping("/members/keyset")
+    @ReadOnlyRequest
+    public KeysetSlice<MemberDto> keysetList(@RequestParam(defaultValue = "id") String sort,
+                                             @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+                                             @RequestParam(defaultValue = "5") int size,
+                                             @RequestParam(required = false) String token) {
+        //yml의 max-page-size와 같은 한도
+        if (size < 1 || size > 2000) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size는 1 ~ 2000 이어야 합니다");
+        }
+
+        MemberKeyset keyset;
+        try {
+            keyset = token == null
+                    ? MemberKeyset.first(MemberKeyset.SortKey.of(sort), direction)
+                    : MemberKeyset.decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+
+        return memberRepository.findByKeyset(keyset, size).map(MemberDto::new);
+    }
+
+    /**
+     * 전체 회원 export, 팀 이름 포함
+     *
+     * 예) /members/export?format=csv, /members/export?format=ndjson
+     * StreamingResponseBody는 별도 스레드에서 응답 스트림에 직접 쓰므로 전체 회원을 List로 만들지 않음
+     * db 커서에서 한 건 읽을 때마다 바로 응답에 쓰므로 회원 수가 늘어도 메모리 사용량은 일정
+     * 트랜잭션은 scrollAllWithTeam 안에서 열리고 닫힘
+     * */
+    @GetMapping("/members/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "CSV") MemberExportWriter.Format format) {
+        StreamingResponseBody body = out -> {
+            MemberExportWriter writer = MemberExportWriter.of(format, out, objectMapper.getFactory());
+            writer.start();
+            memberRepository.scrollAllWithTeam(exportFetchSize, writer::write);
+            writer.finish();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"members." + format.name().toLowerCase() + "\"")
+                .body(body);
+    }
+
     /**
      * 스프링이 어플리케이션 올라올때 이게 한 번 실행되는
      * 값이 없으니 데이터 넣는 코드
@@ -95,9 +284,12 @@ public class MemberController {
     public void init() {
 
         //id 자동으로 생성되니
+        List<Member> members = new ArrayList<>();
         for(int i=0; i<100; i++) {
-            memberRepository.save(new Member("user" + i, i));
+            members.add(new Member("user" + i, i));
         }
+        //한 건씩 save하지 않고 batch insert
+        memberRepository.saveAllBatched(members, 100);
     }
 
 }
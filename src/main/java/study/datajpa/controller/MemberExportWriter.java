@@ -0,0 +1,139 @@
+package study.datajpa.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.http.MediaType;
+import study.datajpa.entity.Member;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 회원 export 한 줄씩 쓰는
+ *
+ * 회원 하나를 받을 때마다 바로 출력 스트림에 씀, 모아두지 않음
+ * id, username, age, teamName 순서
+ * */
+public abstract class MemberExportWriter {
+
+    public enum Format {
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8)),
+        NDJSON(new MediaType("application", "x-ndjson", StandardCharsets.UTF_8));
+
+        private final MediaType mediaType;
+
+        Format(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+    }
+
+    public static MemberExportWriter of(Format format, OutputStream out, JsonFactory jsonFactory) throws IOException {
+        if (format == Format.NDJSON) {
+            return new NdjsonWriter(jsonFactory.createGenerator(out));
+        }
+        return new CsvWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+    }
+
+    public abstract void start() throws IOException;
+
+    /** Consumer로 넘기기 쉽게 IOException은 UncheckedIOException으로 */
+    public void write(Member member) {
+        try {
+            doWrite(member);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected abstract void doWrite(Member member) throws IOException;
+
+    public abstract void finish() throws IOException;
+
+    private static String teamName(Member member) {
+        return member.getTeam() == null ? null : member.getTeam().getName();
+    }
+
+    static class CsvWriter extends MemberExportWriter {
+
+        private final Writer writer;
+
+        CsvWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start() throws IOException {
+            writer.write("id,username,age,teamName\n");
+        }
+
+        @Override
+        protected void doWrite(Member member) throws IOException {
+            writer.write(String.valueOf(member.getId()));
+            writer.write(',');
+            writer.write(escape(member.getUsername()));
+            writer.write(',');
+            writer.write(String.valueOf(member.getAge()));
+            writer.write(',');
+            writer.write(escape(teamName(member)));
+            writer.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        /** 쉼표, 따옴표, 줄바꿈이 있으면 따옴표로 감싸고 안의 따옴표는 두 번 */
+        static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                    && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    /** 한 줄에 json 객체 하나 */
+    static class NdjsonWriter extends MemberExportWriter {
+
+        private final JsonGenerator generator;
+
+        NdjsonWriter(JsonGenerator generator) {
+            this.generator = generator;
+            //루트 값 사이에 기본으로 공백을 넣으므로 줄바꿈만 남게 끔
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        protected void doWrite(Member member) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", member.getId());
+            generator.writeStringField("username", member.getUsername());
+            generator.writeNumberField("age", member.getAge());
+            generator.writeStringField("teamName", teamName(member));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+}
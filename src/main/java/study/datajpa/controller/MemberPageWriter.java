@@ -0,0 +1,68 @@
+package study.datajpa.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.data.domain.Pageable;
+import study.datajpa.dto.MemberDto;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 회원 페이지를 JsonGenerator로 한 건씩 쓰는
+ *
+ * Page를 반환하면 잭슨이 content 전체와 pageable, sort 메타데이터까지 만든 다음에 직렬화를 시작
+ * 여기서는 db에서 한 건 읽을 때마다 바로 씀, 페이지 정보는 content 뒤에 짧게
+ *
+ * {"content":[{"id":1,"username":"a","teamName":"t"},...],
+ *  "page":{"number":0,"size":20,"numberOfElements":20,"totalElements":100,"totalPages":5}}
+ * */
+public class MemberPageWriter {
+
+    private final JsonGenerator generator;
+    private int numberOfElements;
+
+    public MemberPageWriter(JsonGenerator generator) {
+        this.generator = generator;
+    }
+
+    public void start() throws IOException {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("content");
+    }
+
+    /** Consumer로 넘기기 쉽게 IOException은 UncheckedIOException으로 */
+    public void write(MemberDto member) {
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("id", member.getId());
+            generator.writeStringField("username", member.getUsername());
+            generator.writeStringField("teamName", member.getTeamName());
+            generator.writeEndObject();
+            numberOfElements++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void finish(Pageable pageable, long totalElements) throws IOException {
+        generator.writeEndArray();
+
+        generator.writeObjectFieldStart("page");
+        generator.writeNumberField("number", pageable.isPaged() ? pageable.getPageNumber() : 0);
+        generator.writeNumberField("size", pageable.isPaged() ? pageable.getPageSize() : numberOfElements);
+        generator.writeNumberField("numberOfElements", numberOfElements);
+        generator.writeNumberField("totalElements", totalElements);
+        generator.writeNumberField("totalPages", totalPages(pageable, totalElements));
+        generator.writeEndObject();
+
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    private static long totalPages(Pageable pageable, long totalElements) {
+        if (pageable.isUnpaged()) {
+            return 1;
+        }
+        return (totalElements + pageable.getPageSize() - 1) / pageable.getPageSize();
+    }
+}
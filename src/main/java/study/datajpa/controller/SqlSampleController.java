@@ -0,0 +1,34 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.datajpa.monitoring.SqlSampler;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 샘플링한 SQL, 느린 SQL 최근 목록 (SqlSampler)
+ *
+ * 로그 파일 대신 메모리의 최근 capacity개만, 재시작하면 없어짐
+ * */
+@RestController
+@RequiredArgsConstructor
+public class SqlSampleController {
+
+    private final SqlSampler sqlSampler;
+
+    @GetMapping("/sql/samples")
+    public Map<String, Object> samples() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("sampleRate", sqlSampler.getSampleRate());
+        result.put("slowThresholdMillis", sqlSampler.getSlowThresholdMillis());
+        result.put("observedCount", sqlSampler.getObservedCount());
+        result.put("sampledCount", sqlSampler.getSampledCount());
+        result.put("slowCount", sqlSampler.getSlowCount());
+        result.put("slow", sqlSampler.getSlow());
+        result.put("sampled", sqlSampler.getSampled());
+        return result;
+    }
+}
@@ -0,0 +1,53 @@
+package study.datajpa.datasource;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.QueryHint;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @QueryHints(org.hibernate.readOnly = true) 가 붙은 리포지토리 메서드를 복제본으로
+ *
+ * 이미 트랜잭션 안이면 그 트랜잭션이 고른 db를 그대로 씀
+ * 쓰기 트랜잭션 중간에 복제본으로 가면 방금 쓴 데이터가 안 보일 수 있으므로 트랜잭션 밖에서만
+ * */
+public class ReadOnlyHintInterceptor implements MethodInterceptor {
+
+    private static final String READ_ONLY = org.hibernate.annotations.QueryHints.READ_ONLY;
+
+    private final Map<Method, Boolean> readOnlyMethods = new ConcurrentHashMap<>();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                || !readOnlyMethods.computeIfAbsent(invocation.getMethod(), ReadOnlyHintInterceptor::hasReadOnlyHint)) {
+            return invocation.proceed();
+        }
+
+        Boolean previous = ReplicaRoutingDataSource.markReadOnlyHint();
+        try {
+            return invocation.proceed();
+        } finally {
+            ReplicaRoutingDataSource.restoreReadOnlyHint(previous);
+        }
+    }
+
+    static boolean hasReadOnlyHint(Method method) {
+        QueryHints hints = AnnotatedElementUtils.findMergedAnnotation(method, QueryHints.class);
+        if (hints == null) {
+            return false;
+        }
+        for (QueryHint hint : hints.value()) {
+            if (READ_ONLY.equals(hint.name()) && Boolean.parseBoolean(hint.value())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,32 @@
+package study.datajpa.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 읽기 전용 복제본(replica) db 설정, datajpa.datasource.replica
+ *
+ * 주 db(primary)는 기존 spring.datasource 그대로
+ * 복제본들은 계정이 같다고 보고 url만 여러개
+ * */
+@Getter @Setter
+@ConfigurationProperties(prefix = "datajpa.datasource.replica")
+public class ReplicaProperties {
+
+    private boolean enabled;
+
+    private List<String> urls = new ArrayList<>();
+
+    private String username = "sa";
+
+    private String password = "";
+
+    private ReplicaSelection selection = ReplicaSelection.ROUND_ROBIN;
+
+    /** 복제본마다 커넥션 풀 최대 크기 */
+    private int maximumPoolSize = 10;
+}
@@ -0,0 +1,90 @@
+package study.datajpa.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 읽기 전용 요청을 복제본 db로 보내는 DataSource, datajpa.datasource.replica.enabled: true 일때만
+ *
+ * LazyConnectionDataSourceProxy -> ReplicaRoutingDataSource -> 주 db, 복제본 (각각 히카리 풀)
+ * DataSource 빈을 직접 등록하므로 스프링 부트 기본 DataSource는 만들어지지 않음
+ *
+ * datasource-decorator는 DataSource 빈마다 프록시를 씌우므로 바깥까지 씌우면 같은 SQL을 두 번 보게 됨
+ * 그래서 datasource-proxy(SqlSampler)는 안쪽 replicaRoutingDataSource에만 씌우고 바깥 lazyRoutingDataSource는 제외 (decorator.datasource.exclude-beans)
+ * */
+@Configuration
+@EnableConfigurationProperties(ReplicaProperties.class)
+@ConditionalOnProperty(prefix = "datajpa.datasource.replica", name = "enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    /** close()로 풀들을 닫음 */
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties,
+                                                             ReplicaProperties replicaProperties) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : replicaProperties.getUrls()) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setJdbcUrl(url);
+            replica.setUsername(replicaProperties.getUsername());
+            replica.setPassword(replicaProperties.getPassword());
+            replica.setMaximumPoolSize(replicaProperties.getMaximumPoolSize());
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+
+        return new ReplicaRoutingDataSource(primary, replicas, replicaProperties.getSelection());
+    }
+
+    /** JPA가 쓰는 DataSource, 첫 쿼리를 실행할 때 replicaRoutingDataSource에서 커넥션을 꺼냄 */
+    @Bean
+    @Primary
+    public DataSource lazyRoutingDataSource(@Qualifier("replicaRoutingDataSource") DataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    /**
+     * 기본값은 영속성 컨텍스트가 닫힐 때까지 커넥션을 잡고 있음 (OSIV면 요청 끝까지)
+     * 그러면 요청의 첫 트랜잭션이 고른 db를 다음 트랜잭션도 쓰게 되므로 트랜잭션이 끝날 때마다 커넥션 반납
+     * */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    /** 리포지토리 프록시에 ReadOnlyHintInterceptor 추가 */
+    @Bean
+    public static BeanPostProcessor readOnlyHintPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, information) ->
+                                    proxyFactory.addAdvice(new ReadOnlyHintInterceptor())));
+                }
+                return bean;
+            }
+        };
+    }
+}
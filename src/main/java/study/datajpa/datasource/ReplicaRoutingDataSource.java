@@ -0,0 +1,92 @@
+package study.datajpa.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 커넥션을 꺼낼 때 주 db와 복제본 중 하나를 고름
+ *
+ * 읽기 전용 트랜잭션(@Transactional(readOnly = true))이거나
+ * 트랜잭션 없이 org.hibernate.readOnly 힌트가 붙은 리포지토리 메서드(ReadOnlyHintInterceptor)를 실행중이면 복제본
+ * 나머지는 전부 주 db
+ *
+ * 트랜잭션 매니저는 readOnly 여부를 트랜잭션 동기화에 등록하기 전에 커넥션부터 꺼내므로
+ * 반드시 LazyConnectionDataSourceProxy로 감싸서 첫 쿼리를 실행할 때 고르게 해야함 (ReplicaRoutingConfig)
+ * */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Boolean> READ_ONLY_HINT = new ThreadLocal<>();
+
+    private final HikariDataSource primary;
+    private final List<HikariDataSource> replicas;
+    private final ReplicaSelection selection;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+                                    ReplicaSelection selection) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.selection = selection;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < this.replicas.size(); i++) {
+            targets.put(i, this.replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    /** 주 db면 "primary", 복제본이면 몇 번째인지 */
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty() || !isReadOnly()) {
+            return PRIMARY;
+        }
+        return selection.select(replicas, counter);
+    }
+
+    private static boolean isReadOnly() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || Boolean.TRUE.equals(READ_ONLY_HINT.get());
+    }
+
+    /** 트랜잭션 밖에서 읽기 전용 힌트가 붙은 호출, 이전 값을 돌려줌 */
+    static Boolean markReadOnlyHint() {
+        Boolean previous = READ_ONLY_HINT.get();
+        READ_ONLY_HINT.set(Boolean.TRUE);
+        return previous;
+    }
+
+    static void restoreReadOnlyHint(Boolean previous) {
+        if (previous == null) {
+            READ_ONLY_HINT.remove();
+        } else {
+            READ_ONLY_HINT.set(previous);
+        }
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public List<HikariDataSource> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+        primary.close();
+    }
+}
@@ -0,0 +1,49 @@
+package study.datajpa.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 읽기 요청을 보낼 복제본 고르는 방법
+ *
+ * ROUND_ROBIN 차례대로
+ * LEAST_CONNECTIONS 지금 사용중인(active) 커넥션이 가장 적은 복제본, 같으면 차례대로
+ * */
+public enum ReplicaSelection {
+
+    ROUND_ROBIN {
+        @Override
+        int select(List<HikariDataSource> replicas, AtomicInteger counter) {
+            return Math.floorMod(counter.getAndIncrement(), replicas.size());
+        }
+    },
+
+    LEAST_CONNECTIONS {
+        @Override
+        int select(List<HikariDataSource> replicas, AtomicInteger counter) {
+            int start = Math.floorMod(counter.getAndIncrement(), replicas.size());
+            int selected = start;
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < replicas.size(); i++) {
+                int index = (start + i) % replicas.size();
+                int active = activeConnections(replicas.get(index));
+                if (active < min) {
+                    min = active;
+                    selected = index;
+                }
+            }
+            return selected;
+        }
+    };
+
+    abstract int select(List<HikariDataSource> replicas, AtomicInteger counter);
+
+    /** 풀이 아직 시작 전이면 MXBean이 없음, 커넥션 0개 */
+    static int activeConnections(HikariDataSource dataSource) {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getActiveConnections();
+    }
+}
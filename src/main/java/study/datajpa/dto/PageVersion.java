@@ -0,0 +1,45 @@
+package study.datajpa.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 조건부 GET(ETag)용 회원 페이지 버전
+ *
+ * 페이지에 실제로 담긴 회원들의 id, version, 가장 최근 수정시간 + 전체 개수
+ * 페이지 안의 회원이 수정/추가/삭제되거나 전체 개수가 달라지면 바뀜, 다른 페이지의 수정은 상관없음
+ * 회원 행은 조회한 순서 그대로, 순서가 바뀌어도 다른 응답이므로 다른 값
+ * */
+@Getter
+@ToString
+public class PageVersion {
+
+    private final long total;
+    private final String digest;
+
+    private PageVersion(long total, String digest) {
+        this.total = total;
+        this.digest = digest;
+    }
+
+    /** rows는 회원마다 key = member_id, version = @Version (ResourceVersion) */
+    public static PageVersion of(List<ResourceVersion> rows, long total) {
+        StringBuilder source = new StringBuilder();
+        long lastModified = -1;
+        for (ResourceVersion row : rows) {
+            source.append(row.getKey()).append(':').append(row.getVersion()).append(',');
+            lastModified = Math.max(lastModified, row.lastModifiedMillis());
+        }
+        source.append(lastModified);
+        return new PageVersion(total, DigestUtils.md5DigestAsHex(source.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** 같은 상태면 같은 값, 따옴표는 스프링이 붙여줌 */
+    public String etag(String prefix) {
+        return prefix + "-" + total + "-" + digest;
+    }
+}
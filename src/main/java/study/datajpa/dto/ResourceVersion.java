@@ -0,0 +1,39 @@
+package study.datajpa.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * 조건부 GET(ETag, Last-Modified)용, 엔티티 대신 버전 정보만 조회
+ *
+ * 회원 한 명: key = member_id, version = @Version
+ * 회원 페이지는 페이지에 담긴 회원마다 하나씩 모아서 PageVersion
+ * */
+@Getter
+@ToString
+public class ResourceVersion {
+
+    private final long key;
+    private final long version;
+    private final LocalDateTime lastModified;
+
+    public ResourceVersion(Long key, Long version, LocalDateTime lastModified) {
+        this.key = key == null ? 0 : key;
+        this.version = version == null ? 0 : version;
+        this.lastModified = lastModified;
+    }
+
+    /** 같은 상태면 같은 값, 따옴표는 스프링이 붙여줌 */
+    public String etag(String prefix) {
+        long modified = lastModified == null ? 0 : lastModifiedMillis();
+        return prefix + "-" + key + "-" + version + "-" + Long.toString(modified, 36);
+    }
+
+    /** Last-Modified 헤더, 없으면 -1 (헤더 안 씀) */
+    public long lastModifiedMillis() {
+        return lastModified == null ? -1 : lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
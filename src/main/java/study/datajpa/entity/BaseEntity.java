@@ -47,5 +47,8 @@ public class BaseEntity extends BaseTimeEntity{
     /**
      * 실무에서 대부분의 엔티티는 등록시간, 수정시간이 필요하지만, 등록자, 수정자는 없을 수도 있다.
      * 그래서 이 클래스에서는 등록일 수정일만 작성하고 이 클래스 상속받는 클래스에 등록자 수정자 작성하는 경우도 있음
+     *
+     * 등록자와 시간은 트랜잭션마다 한 번만 구해서 재사용 (AuditStamps)
+     * 대량 저장은 AuditStamps.bulk() 범위 안에서, 청크 전체가 같은 등록자 같은 시간
      *  */
 }
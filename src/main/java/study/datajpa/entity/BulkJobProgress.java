@@ -0,0 +1,57 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * 나눠서 실행하는 벌크 수정 작업의 진행 상황 (MemberBulkUpdater)
+ *
+ * 청크 수정과 같은 트랜잭션에서 같이 커밋되므로 중간에 실패해도 lastId 다음부터 이어서 실행
+ * age + 1 처럼 두 번 실행하면 결과가 달라지는 수정도 청크마다 정확히 한 번만 반영됨
+ * */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class BulkJobProgress extends BaseTimeEntity {
+
+    /** 작업 이름, 같은 이름으로 다시 실행하면 이어서 */
+    @Id
+    private String jobName;
+
+    /** 실행한 update jpql + 파라미터 해시, 같은 이름으로 다른 수정을 실행하면 이어서 하지 않고 예외 */
+    private String fingerprint;
+
+    /** 마지막으로 처리한 청크의 끝 id, 다음 청크는 이 id 다음부터 */
+    private long lastId;
+
+    private long updatedRows;
+
+    private int chunks;
+
+    private boolean completed;
+
+    public BulkJobProgress(String jobName, String fingerprint) {
+        this.jobName = jobName;
+        this.fingerprint = fingerprint;
+    }
+
+    public boolean matches(String fingerprint) {
+        return this.fingerprint.equals(fingerprint);
+    }
+
+    public void chunkDone(long lastId, int updatedRows) {
+        this.lastId = lastId;
+        this.updatedRows += updatedRows;
+        this.chunks++;
+    }
+
+    public void complete() {
+        this.completed = true;
+    }
+}
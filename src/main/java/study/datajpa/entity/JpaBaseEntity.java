@@ -1,6 +1,8 @@
 package study.datajpa.entity;
 
 import lombok.Getter;
+import study.datajpa.auditing.AuditStamps;
+
 import javax.persistence.Column;
 import javax.persistence.MappedSuperclass;
 import javax.persistence.PrePersist;
@@ -39,7 +41,8 @@ public class JpaBaseEntity {
     /** 퍼시스트 하기전에 실행 */
     @PrePersist
     public void prePersist() {
-        LocalDateTime now = LocalDateTime.now();
+        //트랜잭션(벌크 청크) 안이면 한 번 구한 시간을 같이 씀, 엔티티마다 now() 호출 안함
+        LocalDateTime now = AuditStamps.currentTime();
 
         //데이터를 넣어놔야 쿼리 날릴때 편함, 등록일 수정일 맞추는
         createdDate = now;
@@ -53,6 +56,6 @@ public class JpaBaseEntity {
      * */
     @PreUpdate
     public void preUpdate() {
-        updatedDate = LocalDateTime.now();
+        updatedDate = AuditStamps.currentTime();
     }
 }
\ No newline at end of file
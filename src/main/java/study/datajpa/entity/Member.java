@@ -20,10 +20,17 @@ import javax.persistence.*;
 //@NamedQuery처럼 엔티티그래프에 이름 지정하고 재활용하기 좋게
 //@NamedEntityGraph(name = "Member.all", attributeNodes = {@NamedAttributeNode("team"), @NamedAttributeNode("team")})
 @NamedEntityGraph(name = "Member.all", attributeNodes = @NamedAttributeNode("team"))
+//keyset 페이징용 인덱스, 정렬 키 다음에 member_id까지 있어야 같은 값이 많아도 바로 이어서 찾음
+@Table(indexes = {
+        @Index(name = "idx_member_username_id", columnList = "username, member_id"),
+        @Index(name = "idx_member_age_id", columnList = "age, member_id")})
 public class Member extends BaseEntity{
 
     @Id
-    @GeneratedValue
+    //시퀀스를 한 번 부를때 50개씩 id를 받아와 메모리에서 나눠줌(pooled), insert마다 시퀀스 조회하지 않음
+    //id를 persist 시점에 알 수 있어 jdbc batch insert가 가능, IDENTITY 전략은 batch가 안됨
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     //db테이블은 이 키값으로 매핑
     @Column(name = "member_id")
     private Long id;
@@ -36,8 +43,16 @@ public class Member extends BaseEntity{
     @ManyToOne(fetch = FetchType.LAZY)
     //외래키 명
     @JoinColumn(name = "team_id")
+    //팀 바꾸기는 changeTeam 으로만, 팀 쪽 컬렉션과 회원 수를 같이 맞춤
+    @Setter(AccessLevel.NONE)
     private Team team;
 
+    //낙관적 락, update ... where member_id=? and version=? 로 수정하고 1 증가
+    //그 사이 다른 트랜잭션이 먼저 수정했으면 0건이 수정되어 OptimisticLockException, 다시 시도는 OptimisticRetryTemplate
+    @Version
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
     //이름만 받는 생성자
     public Member(String username) {
         this(username, 0);
@@ -63,8 +78,26 @@ public class Member extends BaseEntity{
     //양방향이면 서로 값 세팅, 한 코드로 해결
     //==연관관계 메서드==//
     //팀 변경 메서드, 파라미터로 들어온 새로운팀에 현재 Member객체 넣기
+    //team.getMembers().add(this) 처럼 컬렉션을 직접 건드리지 않고 Team.addMember, 팀 회원 목록을 읽지 않음
+    //null 이면 팀에서 나가기
     public void changeTeam(Team team) {
+        if (this.team == team) {
+            return;
+        }
+        if (this.team != null) {
+            this.team.removeMember(this);//이전 팀에서 빼기
+        }
         this.team = team;//현재 회원의 팀에 파라미터 팀을 세팅
-        team.getMembers().add(this);//파라미터로 들어온 팀의 회원리스트를 갖고와 현재 생성하는 회원 객체를 추가가
+        if (team != null) {
+            team.addMember(this);//파라미터로 들어온 팀의 회원리스트에 현재 회원 객체를 추가
+        }
+    }
+
+    //em.remove 로 지울때 팀 쪽 컬렉션과 회원 수도 맞춤, deleteAllInBatch 같은 벌크 삭제는 안 거침
+    @PreRemove
+    private void leaveTeam() {
+        if (team != null) {
+            team.removeMember(this);
+        }
     }
 }
\ No newline at end of file
@@ -2,6 +2,12 @@ package study.datajpa.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.LazyCollection;
+import org.hibernate.annotations.LazyCollectionOption;
+import org.hibernate.annotations.OptimisticLock;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -13,21 +19,62 @@ import java.util.Set;
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
+//2차 캐시, 회원 조회할때 마다 팀을 다시 select 하지 않게, 팀은 거의 바뀌지 않음
+//NONSTRICT_READ_WRITE는 수정되면 캐시에서 지우기만 하고 락을 걸지 않음, 변경이 드문 엔티티에 맞음
+//회원의 team 프록시를 초기화할 때도 db 대신 여기서 먼저 찾음
+//회원이 들어오고 나가는 건 팀 수정이 아님(memberCount 는 db에서 바로 더함), 캐시를 지우지 않으므로 캐시의 memberCount 는 늦을 수 있음
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "team")
 public class Team {
 
-    @Id @GeneratedValue
+    //Member와 같이 50개씩 미리 받아오는 pooled 시퀀스
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq_generator")
+    @SequenceGenerator(name = "team_seq_generator", sequenceName = "team_seq", allocationSize = 50)
     @Column(name = "team_id")
     private Long id;
 
     private String name;
 
+    //낙관적 락, Member와 같음
+    @Version
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
     //양방향매핑일때 외래키가 없는 곳에
+    //EXTRA 초기화 안된 상태에서 size(), contains()는 컬렉션 대신 count, exists 쿼리
+    //add()는 mappedBy(inverse) bag 이라 초기화하지 않고 쌓아뒀다가 나중에 초기화될 때 합침
     @OneToMany(mappedBy = "team")
+    @LazyCollection(LazyCollectionOption.EXTRA)
     List<Member> members = new ArrayList<>();
 
+    //회원 수 비정규화, 회원 목록을 읽지 않고 팀 row 만으로 회원 수
+    //db 값은 TeamMemberCounter 가 회원 insert/delete 때 member_count + 1 처럼 더하고 뺌, 하이버네이트는 이 컬럼을 쓰지 않음
+    //그래서 팀 version이 오르지 않고 2차 캐시도 지우지 않음, 같은 팀에 동시에 들어와도 OptimisticLockException 없음
+    //필드는 읽어온 값에 이 인스턴스로 들어오고 나간 회원만 더한 것, 정확한 값은 TeamRepository.findMemberCount
+    @Column(insertable = false, updatable = false, columnDefinition = "integer default 0 not null")
+    @OptimisticLock(excluded = true)
+    @Setter(AccessLevel.NONE)
+    private int memberCount;
+
     public Team(String name) {
         this.name = name;
     }
+
+    //==연관관계 메서드==//
+    //Member.changeTeam 에서 부름, 팀 쪽 컬렉션과 이 인스턴스의 회원 수만 맞춤 (외래키는 Member.team, db 회원 수는 TeamMemberCounter)
+    void addMember(Member member) {
+        members.add(member);
+        memberCount++;
+    }
+
+    //bag 의 remove()는 컬렉션을 초기화하므로 이미 읽은 경우만 빼고, 안 읽었으면 나중에 db에서 읽을때 빠져 있음
+    void removeMember(Member member) {
+        if (Hibernate.isInitialized(members)) {
+            members.remove(member);
+        }
+        memberCount--;
+    }
 }
 
 
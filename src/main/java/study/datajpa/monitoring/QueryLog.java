@@ -0,0 +1,116 @@
+package study.datajpa.monitoring;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 한 요청(또는 테스트 하나) 동안 실행된 SQL 기록
+ *
+ * start() 한 스레드에서만 기록, SqlStatementCounter(StatementInspector)가 SQL마다 record 호출
+ * select는 하이버네이트가 만든 SQL 문자열 그대로 횟수를 셈, 파라미터는 이미 ?라 따로 바꾸지 않음
+ * 지연 로딩으로 id만 다른 select가 여러 번 나가면 같은 SQL로 모이므로 N+1을 찾을 수 있음
+ * SQL마다 하는 일은 map 하나에 더하는 것뿐, 리터럴을 ?로 바꾸는 정리는 threshold를 넘은 SQL을 돌려줄 때만
+ * */
+public final class QueryLog {
+
+    private static final ThreadLocal<QueryLog> CURRENT = new ThreadLocal<>();
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+\\b");
+
+    private final Map<String, Integer> selects = new LinkedHashMap<>();
+    private int selectCount;
+    private int insertCount;
+    private int updateCount;
+    private int deleteCount;
+
+    private QueryLog() {
+    }
+
+    /** 현재 스레드에서 기록 시작, 이전 기록은 버림 */
+    public static QueryLog start() {
+        QueryLog log = new QueryLog();
+        CURRENT.set(log);
+        return log;
+    }
+
+    /** 기록을 끝내고 지금까지의 기록을 돌려줌, 시작하지 않았으면 null */
+    public static QueryLog stop() {
+        QueryLog log = CURRENT.get();
+        CURRENT.remove();
+        return log;
+    }
+
+    /** 기록 중이 아니면 null */
+    public static QueryLog current() {
+        return CURRENT.get();
+    }
+
+    static void record(String sql) {
+        QueryLog log = CURRENT.get();
+        if (log != null) {
+            log.add(sql);
+        }
+    }
+
+    private void add(String sql) {
+        int start = 0;
+        while (start < sql.length() && Character.isWhitespace(sql.charAt(start))) {
+            start++;
+        }
+        if (startsWith(sql, start, "select")) {
+            selectCount++;
+            selects.merge(sql, 1, Integer::sum);
+        } else if (startsWith(sql, start, "insert")) {
+            insertCount++;
+        } else if (startsWith(sql, start, "update")) {
+            updateCount++;
+        } else if (startsWith(sql, start, "delete")) {
+            deleteCount++;
+        }
+    }
+
+    private static boolean startsWith(String sql, int start, String verb) {
+        return sql.regionMatches(true, start, verb, 0, verb.length());
+    }
+
+    static String normalize(String sql) {
+        String result = WHITESPACE.matcher(sql).replaceAll(" ").trim();
+        result = STRING_LITERAL.matcher(result).replaceAll("?");
+        return NUMBER_LITERAL.matcher(result).replaceAll("?");
+    }
+
+    /** threshold번 이상 반복된 select, 정리한 SQL -> 횟수 */
+    public Map<String, Integer> repeatedSelects(int threshold) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        selects.forEach((sql, count) -> {
+            if (count >= threshold) {
+                result.merge(normalize(sql), count, Integer::sum);
+            }
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    public int getSelectCount() {
+        return selectCount;
+    }
+
+    public int getInsertCount() {
+        return insertCount;
+    }
+
+    public int getUpdateCount() {
+        return updateCount;
+    }
+
+    public int getDeleteCount() {
+        return deleteCount;
+    }
+
+    public int getTotalCount() {
+        return selectCount + insertCount + updateCount + deleteCount;
+    }
+}
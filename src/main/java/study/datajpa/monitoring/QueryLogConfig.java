@@ -0,0 +1,25 @@
+package study.datajpa.monitoring;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * N+1 경고 로그, datajpa.query-log.enabled: true 일때만 (기본은 false)
+ * 켜면 요청마다 모든 SQL이 QueryLog를 거치므로 개발이나 문제를 찾을 때만
+ * 테스트에서는 QueryCountExtension으로 개수를 직접 검증
+ * */
+@Configuration
+@ConditionalOnProperty(name = "datajpa.query-log.enabled", havingValue = "true")
+public class QueryLogConfig implements WebMvcConfigurer {
+
+    @Value("${datajpa.query-log.repeated-select-threshold:5}")
+    private int repeatedSelectThreshold;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new QueryLogInterceptor(repeatedSelectThreshold));
+    }
+}
@@ -0,0 +1,47 @@
+package study.datajpa.monitoring;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+
+/**
+ * 요청마다 실행된 SQL을 기록하고 같은 select가 threshold번 이상 반복되면 경고 로그
+ *
+ * OSIV(open-in-view)가 켜져 있으므로 컨트롤러에서 dto로 바꾸다 나가는 지연 로딩 SQL도 같은 요청 스레드에서 기록됨
+ * 운영에서는 로그만 남기고 응답에는 영향 없음
+ * */
+@Slf4j
+public class QueryLogInterceptor implements AsyncHandlerInterceptor {
+
+    private final int repeatedSelectThreshold;
+
+    public QueryLogInterceptor(int repeatedSelectThreshold) {
+        this.repeatedSelectThreshold = repeatedSelectThreshold;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryLog.start();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        QueryLog queryLog = QueryLog.stop();
+        if (queryLog == null) {
+            return;
+        }
+        Map<String, Integer> repeated = queryLog.repeatedSelects(repeatedSelectThreshold);
+        repeated.forEach((sql, count) -> log.warn("N+1 suspected: {} {} ran the same select {} times (statements={}): {}",
+                request.getMethod(), request.getRequestURI(), count, queryLog.getTotalCount(), sql));
+    }
+
+    /** StreamingResponseBody 같은 비동기 응답은 afterCompletion이 다른 스레드에서 불리므로 여기서 정리 */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryLog.stop();
+    }
+}
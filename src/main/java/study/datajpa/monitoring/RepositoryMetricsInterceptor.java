@@ -0,0 +1,80 @@
+package study.datajpa.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import study.datajpa.repository.KeysetSlice;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * 리포지토리 메서드 하나가 실행한 SQL 개수와 결과 row 수를 기록
+ *
+ * 메서드 이름 쿼리, @Query, MemberRepositoryImpl 같은 사용자 정의 메서드까지 리포지토리 프록시를 거치는 건 전부
+ * 실행 시간은 스프링 부트가 spring.data.repository.invocations 타이머로 이미 기록하므로 여기서는
+ * 같은 태그(repository, method)로 spring.data.repository.statements, spring.data.repository.rows 를 남김
+ *
+ * 리포지토리가 반환한 뒤 지연 로딩으로 나가는 SQL은 그 리포지토리 호출에 포함되지 않음
+ * */
+public class RepositoryMetricsInterceptor implements MethodInterceptor {
+
+    private final MeterRegistry registry;
+    private final String repository;
+
+    public RepositoryMetricsInterceptor(MeterRegistry registry, String repository) {
+        this.registry = registry;
+        this.repository = repository;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        long before = SqlStatementCounter.current();
+        Object result = null;
+        try {
+            result = invocation.proceed();
+            return result;
+        } finally {
+            Method method = invocation.getMethod();
+            summary("spring.data.repository.statements", "SQL statements per repository invocation", method)
+                    .record(SqlStatementCounter.current() - before);
+            summary("spring.data.repository.rows", "rows returned or affected per repository invocation", method)
+                    .record(rows(method, result));
+        }
+    }
+
+    private DistributionSummary summary(String name, String description, Method method) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tag("repository", repository)
+                .tag("method", method.getName())
+                .register(registry);
+    }
+
+    /** 반환 타입별 row 수, @Modifying 이면 반환값이 수정된 row 수 */
+    static long rows(Method method, Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Number && method.isAnnotationPresent(Modifying.class)) {
+            return ((Number) result).longValue();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof KeysetSlice) {
+            return ((KeysetSlice<?>) result).getContent().size();
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,57 @@
+package study.datajpa.monitoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 크기가 정해진 원형 버퍼, 가득 차면 가장 오래된 것부터 덮어씀
+ *
+ * 락 없이 AtomicLong으로 다음 칸 번호만 받아서 씀, 쿼리를 실행한 스레드가 기다리지 않음
+ * 크기는 2의 거듭제곱으로 올림, 칸 번호를 나머지 대신 & 로 구함
+ * snapshot 도중에 덮어쓰인 칸은 더 새로운 값이 보일 수 있음, 진단용이라 정확한 순간 값이 필요 없음
+ * */
+public class RingBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+
+    public RingBuffer(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30: " + capacity);
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public void add(T item) {
+        long sequence = next.getAndIncrement();
+        slots.set((int) (sequence & mask), item);
+    }
+
+    /** 최신 순, 최대 capacity개 */
+    public List<T> snapshot() {
+        long end = next.get();
+        long start = Math.max(0, end - slots.length());
+        List<T> result = new ArrayList<>((int) (end - start));
+        for (long sequence = end - 1; sequence >= start; sequence--) {
+            T item = slots.get((int) (sequence & mask));
+            if (item != null) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    /** 지금까지 넣은 개수, 덮어쓴 것 포함 */
+    public long getAddedCount() {
+        return next.get();
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+}
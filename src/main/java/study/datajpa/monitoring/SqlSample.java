@@ -0,0 +1,39 @@
+package study.datajpa.monitoring;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * SqlSampler가 남긴 SQL 한 건
+ *
+ * 느린 SQL만 바인딩 파라미터와 호출한 코드 위치(stack)가 있음, 샘플은 둘 다 빈 목록
+ * */
+@Getter
+public class SqlSample {
+
+    private final Instant time;
+    private final long elapsedMillis;
+    private final String sql;
+    private final int batchSize;
+    private final boolean success;
+    private final boolean slow;
+    private final String thread;
+    /** 파라미터 한 벌(batch면 여러 벌)마다 ?에 들어간 값 순서대로 */
+    private final List<List<String>> parameters;
+    private final List<String> stack;
+
+    public SqlSample(Instant time, long elapsedMillis, String sql, int batchSize, boolean success, boolean slow,
+                     String thread, List<List<String>> parameters, List<String> stack) {
+        this.time = time;
+        this.elapsedMillis = elapsedMillis;
+        this.sql = sql;
+        this.batchSize = batchSize;
+        this.success = success;
+        this.slow = slow;
+        this.thread = thread;
+        this.parameters = parameters;
+        this.stack = stack;
+    }
+}
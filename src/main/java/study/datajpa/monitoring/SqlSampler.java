@@ -0,0 +1,142 @@
+package study.datajpa.monitoring;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * p6spy, org.hibernate.SQL 로그 대신 SQL 일부만 남기는 datasource-proxy 리스너
+ *
+ * 모든 SQL을 포맷팅해서 로그로 쓰면 SQL 개수만큼 cpu와 로그 io가 듦
+ * 여기서는 SQL 하나마다 실행 시간 비교와 난수 하나만, 나머지는 남길 때만
+ * slowThreshold 이상 걸린 SQL은 항상, 바인딩 파라미터와 호출한 코드 위치까지
+ * 나머지는 sampleRate 비율만큼 SQL과 실행 시간만
+ * 로그 대신 RingBuffer에 넣어두고 /sql/samples 에서 확인 (SqlSampleController)
+ *
+ * datasource-decorator가 QueryExecutionListener 빈을 찾아서 DataSource 프록시에 등록 (SqlSamplerConfig)
+ * */
+public class SqlSampler implements QueryExecutionListener {
+
+    private static final String APPLICATION_PACKAGE = "study.datajpa.";
+    private static final String SAMPLER_CLASS = SqlSampler.class.getName();
+    private static final int MAX_PARAMETER_SETS = 10;
+    private static final int MAX_VALUE_LENGTH = 100;
+
+    private final double sampleRate;
+    private final long slowThresholdMillis;
+    private final int stackDepth;
+    private final RingBuffer<SqlSample> sampled;
+    private final RingBuffer<SqlSample> slow;
+    private final LongAdder observed = new LongAdder();
+
+    public SqlSampler(double sampleRate, Duration slowThreshold, int capacity, int stackDepth) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sampleRate must be between 0 and 1: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+        this.slowThresholdMillis = slowThreshold.toMillis();
+        this.stackDepth = stackDepth;
+        //샘플이 많아도 느린 SQL이 밀려나지 않게 따로
+        this.sampled = new RingBuffer<>(capacity);
+        this.slow = new RingBuffer<>(capacity);
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        observed.increment();
+        if (execInfo.getElapsedTime() >= slowThresholdMillis) {
+            slow.add(sample(execInfo, queryInfoList, true));
+        } else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            sampled.add(sample(execInfo, queryInfoList, false));
+        }
+    }
+
+    private SqlSample sample(ExecutionInfo execInfo, List<QueryInfo> queryInfoList, boolean isSlow) {
+        String sql = queryInfoList.stream().map(QueryInfo::getQuery).collect(joining(";\n"));
+        return new SqlSample(Instant.now(), execInfo.getElapsedTime(), sql, execInfo.getBatchSize(),
+                execInfo.isSuccess(), isSlow, Thread.currentThread().getName(),
+                isSlow ? parameters(queryInfoList) : List.of(),
+                isSlow ? stack() : List.of());
+    }
+
+    private static List<List<String>> parameters(List<QueryInfo> queryInfoList) {
+        List<List<String>> result = new ArrayList<>();
+        for (QueryInfo queryInfo : queryInfoList) {
+            for (List<ParameterSetOperation> operations : queryInfo.getParametersList()) {
+                if (result.size() == MAX_PARAMETER_SETS) {
+                    return result;
+                }
+                //setXxx(index, value) 호출 순서가 ? 순서와 다를 수 있으므로 index로 정렬
+                result.add(operations.stream()
+                        .sorted(Comparator.comparingInt(operation -> ((Number) operation.getArgs()[0]).intValue()))
+                        .map(SqlSampler::value)
+                        .collect(toList()));
+            }
+        }
+        return result;
+    }
+
+    private static String value(ParameterSetOperation operation) {
+        //setNull(index, sqlType)의 두 번째 인자는 값이 아니라 타입
+        if (operation.getMethod().getName().equals("setNull") || operation.getArgs().length < 2) {
+            return "null";
+        }
+        String value = String.valueOf(operation.getArgs()[1]);
+        return value.length() > MAX_VALUE_LENGTH ? value.substring(0, MAX_VALUE_LENGTH) + "..." : value;
+    }
+
+    /** 애플리케이션 코드 프레임만, 스프링, 하이버네이트, jdbc 프레임은 뺌 */
+    private List<String> stack() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(APPLICATION_PACKAGE)
+                        && !frame.getClassName().equals(SAMPLER_CLASS))
+                .limit(stackDepth)
+                .map(StackWalker.StackFrame::toString)
+                .collect(toList()));
+    }
+
+    public List<SqlSample> getSampled() {
+        return sampled.snapshot();
+    }
+
+    public List<SqlSample> getSlow() {
+        return slow.snapshot();
+    }
+
+    /** 리스너가 본 SQL 개수, 남기지 않은 것 포함 */
+    public long getObservedCount() {
+        return observed.sum();
+    }
+
+    public long getSampledCount() {
+        return sampled.getAddedCount();
+    }
+
+    public long getSlowCount() {
+        return slow.getAddedCount();
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public long getSlowThresholdMillis() {
+        return slowThresholdMillis;
+    }
+}
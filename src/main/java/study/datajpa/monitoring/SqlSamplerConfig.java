@@ -0,0 +1,25 @@
+package study.datajpa.monitoring;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * SQL 샘플링, datajpa.sql-sampler
+ *
+ * QueryExecutionListener 빈이므로 datasource-decorator가 DataSource 프록시에 붙임
+ * decorator.datasource.enabled: false 면 빈은 있지만 아무것도 남지 않음
+ * */
+@Configuration
+public class SqlSamplerConfig {
+
+    @Bean
+    public SqlSampler sqlSampler(@Value("${datajpa.sql-sampler.sample-rate:0.01}") double sampleRate,
+                                 @Value("${datajpa.sql-sampler.slow-threshold:200ms}") Duration slowThreshold,
+                                 @Value("${datajpa.sql-sampler.capacity:256}") int capacity,
+                                 @Value("${datajpa.sql-sampler.stack-depth:8}") int stackDepth) {
+        return new SqlSampler(sampleRate, slowThreshold, capacity, stackDepth);
+    }
+}
@@ -0,0 +1,28 @@
+package study.datajpa.monitoring;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * 하이버네이트가 SQL을 jdbc로 보내기 직전에 호출됨, 스레드별로 실행된 SQL 개수를 셈
+ *
+ * SQL은 바꾸지 않고 그대로 돌려줌
+ * 리포지토리 메서드 호출 전후의 개수 차이로 그 호출이 만든 SQL 개수를 구함
+ * hibernate.session_factory.statement_inspector 로 등록 (RepositoryMetricsConfig)
+ * QueryLog가 시작된 스레드면 SQL도 같이 기록
+ * */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        QueryLog.record(sql);
+        return sql;
+    }
+
+    /** 현재 스레드에서 지금까지 실행된 SQL 개수 */
+    public static long current() {
+        return COUNT.get()[0];
+    }
+}
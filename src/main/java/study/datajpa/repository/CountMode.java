@@ -0,0 +1,21 @@
+package study.datajpa.repository;
+
+/**
+ * Page의 전체 개수(count 쿼리)를 구하는 방법, MemberPagingRepository
+ *
+ * 어떤 방법이든 첫 페이지나 마지막 페이지가 size보다 적게 오면 count 쿼리 없이 전체 개수를 계산함
+ * */
+public enum CountMode {
+
+    /** 매번 count 쿼리, 기존 Page와 같음 */
+    EXACT,
+
+    /** 같은 쿼리 + 파라미터의 count 결과를 TTL 동안 재사용, 그동안 추가/삭제된 회원은 반영 안됨 */
+    CACHED,
+
+    /**
+     * 조건 없는 전체 조회면 db 통계(information_schema)의 추정 row 수, 정확하지 않음
+     * 조건이 있거나 추정할 수 없는 db면 CACHED
+     * */
+    ESTIMATED
+}
@@ -0,0 +1,252 @@
+package study.datajpa.repository;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.implementation.EqualsMethod;
+import net.bytebuddy.implementation.FieldAccessor;
+import net.bytebuddy.implementation.HashCodeMethod;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.implementation.ToStringMethod;
+import net.bytebuddy.dynamic.DynamicType;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.projection.ProjectionInformation;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.util.ClassUtils;
+
+import javax.persistence.Entity;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static net.bytebuddy.matcher.ElementMatchers.isEquals;
+import static net.bytebuddy.matcher.ElementMatchers.isHashCode;
+import static net.bytebuddy.matcher.ElementMatchers.isToString;
+import static net.bytebuddy.matcher.ElementMatchers.named;
+import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
+
+/**
+ * 인터페이스 기반 Projections 구현 클래스를 직접 만들어주는 ProjectionFactory
+ *
+ * 스프링 기본(SpelAwareProxyProjectionFactory)은 결과 한 건마다 jdk 프록시 + 인터셉터 체인을 만들고
+ * getter를 부를 때마다 Map(TupleBackedMap)에서 꺼내고 변환함
+ * 여기서는 프로젝션 인터페이스마다 필드 + getter만 있는 클래스를 ByteBuddy로 한 번 만들어 캐시하고
+ * 결과 한 건마다 생성자 한 번으로 값을 채움, getter는 필드를 그대로 반환
+ *
+ * 엔티티 전체를 불러오게 되는 프로젝션은 바로 예외
+ * 오픈 프로젝션(@Value SpEL)은 target 엔티티 전체를 조회함
+ * 중첩 프로젝션 값이 엔티티면 연관 엔티티 전체를 조회한 것
+ *
+ * 컬렉션을 반환하는 getter 처럼 만들 수 없는 프로젝션은 스프링 기본 프록시로
+ * */
+public class GeneratedProjectionFactory extends SpelAwareProxyProjectionFactory {
+
+    private final Map<Class<?>, Optional<ProjectionAccessor>> accessors = new ConcurrentHashMap<>();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T createProjection(Class<T> projectionType, Object source) {
+        if (source == null || projectionType.isInstance(source) || !projectionType.isInterface()) {
+            return super.createProjection(projectionType, source);
+        }
+
+        Optional<ProjectionAccessor> accessor = accessorFor(projectionType);
+        if (accessor.isEmpty()) {
+            return super.createProjection(projectionType, source);
+        }
+        if (!(source instanceof Map)) {
+            if (isEntity(source.getClass())) {
+                throw new InvalidDataAccessApiUsageException(projectionType.getName()
+                        + " 프로젝션이 엔티티 " + source.getClass().getSimpleName()
+                        + " 전체를 조회했습니다. 필요한 컬럼만 select 하세요");
+            }
+            return super.createProjection(projectionType, source);
+        }
+        return (T) accessor.get().create((Map<String, Object>) source);
+    }
+
+    /**
+     * 프로젝션 구현 클래스, 처음 한 번만 만들고 캐시
+     * 오픈 프로젝션이면 예외, 만들 수 없는 프로젝션이면 empty
+     * */
+    public Optional<ProjectionAccessor> accessorFor(Class<?> projectionType) {
+        Optional<ProjectionAccessor> accessor = accessors.get(projectionType);
+        if (accessor == null) {
+            accessor = accessors.computeIfAbsent(projectionType, this::generate);
+        }
+        return accessor;
+    }
+
+    /**
+     * 리포지토리 메서드가 선언한 프로젝션 검사, 애플리케이션 시작할 때 (ProjectionJpaRepositoryFactoryBean)
+     * 중첩 프로젝션이 도메인의 연관 엔티티를 가리키면 그 엔티티 전체를 조회하게 되므로 예외
+     * */
+    public void validate(Class<?> projectionType, Class<?> domainType, String method) {
+        for (PropertyDescriptor property : getProjectionInformation(projectionType).getInputProperties()) {
+            Class<?> returnType = property.getPropertyType();
+            if (!isNestedProjection(returnType)) {
+                continue;
+            }
+            PropertyDescriptor domainProperty = BeanUtils.getPropertyDescriptor(domainType, property.getName());
+            if (domainProperty != null && isEntity(domainProperty.getPropertyType())) {
+                throw new InvalidDataAccessApiUsageException(method + ": " + projectionType.getName() + "."
+                        + property.getName() + " 중첩 프로젝션은 연관 엔티티 "
+                        + domainProperty.getPropertyType().getSimpleName() + " 전체를 조회합니다");
+            }
+        }
+        accessorFor(projectionType);
+    }
+
+    private Optional<ProjectionAccessor> generate(Class<?> projectionType) {
+        ProjectionInformation information = getProjectionInformation(projectionType);
+        if (!information.isClosed()) {
+            throw new InvalidDataAccessApiUsageException(projectionType.getName()
+                    + " 는 오픈 프로젝션(@Value)이라 엔티티 전체를 조회합니다. 닫힌 프로젝션이나 DTO를 사용하세요");
+        }
+
+        List<Property> properties = new ArrayList<>();
+        for (Method method : projectionType.getMethods()) {
+            if (!Modifier.isAbstract(method.getModifiers())) {
+                continue;
+            }
+            PropertyDescriptor descriptor = BeanUtils.findPropertyForMethod(method);
+            if (descriptor == null || method.getParameterCount() != 0 || !supported(method.getReturnType())) {
+                return Optional.empty();
+            }
+            properties.add(new Property(descriptor.getName(), method.getName(), method.getReturnType()));
+        }
+
+        try {
+            return Optional.of(new ProjectionAccessor(this, projectionType, properties));
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            //패키지 전용 인터페이스처럼 다른 클래스로더에서 구현할 수 없는 경우
+            return Optional.empty();
+        }
+    }
+
+    private static boolean supported(Class<?> type) {
+        return !Collection.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type)
+                && !Optional.class.equals(type) && !type.isArray();
+    }
+
+    static boolean isNestedProjection(Class<?> type) {
+        return type.isInterface() && !type.getName().startsWith("java.") && supported(type);
+    }
+
+    private static boolean isEntity(Class<?> type) {
+        return ClassUtils.getUserClass(type).isAnnotationPresent(Entity.class)
+                || (type.getSuperclass() != null && type.getSuperclass().isAnnotationPresent(Entity.class));
+    }
+
+    private static class Property {
+        final String name;
+        final String getter;
+        final Class<?> type;
+
+        Property(String name, String getter, Class<?> type) {
+            this.name = name;
+            this.getter = getter;
+            this.type = type;
+        }
+    }
+
+    /**
+     * 프로젝션 인터페이스 하나의 구현 클래스와 생성자
+     * 생성자는 MethodHandle로 한 번 찾아두고 Object[]를 펼쳐서 호출
+     * */
+    public static class ProjectionAccessor {
+
+        private final GeneratedProjectionFactory factory;
+        private final Class<?> implementation;
+        private final String[] names;
+        private final Class<?>[] types;
+        private final boolean[] nested;
+        private final MethodHandle constructor;
+
+        ProjectionAccessor(GeneratedProjectionFactory factory, Class<?> projectionType, List<Property> properties)
+                throws ReflectiveOperationException {
+            this.factory = factory;
+            int size = properties.size();
+            this.names = new String[size];
+            this.types = new Class<?>[size];
+            this.nested = new boolean[size];
+
+            DynamicType.Builder<Object> builder = new ByteBuddy()
+                    .subclass(Object.class)
+                    .name(projectionType.getName() + "$Generated")
+                    .implement(projectionType);
+            Implementation.Composable init = MethodCall.invoke(Object.class.getConstructor());
+            for (int i = 0; i < size; i++) {
+                Property property = properties.get(i);
+                names[i] = property.name;
+                types[i] = property.type;
+                nested[i] = isNestedProjection(property.type);
+
+                String field = "$" + property.name;
+                builder = builder.defineField(field, property.type, Visibility.PRIVATE)
+                        .method(named(property.getter).and(takesArguments(0)))
+                        .intercept(FieldAccessor.ofField(field));
+                init = init.andThen(FieldAccessor.ofField(field).setsArgumentAt(i));
+            }
+            this.implementation = builder
+                    .defineConstructor(Visibility.PUBLIC).withParameters(types).intercept(init)
+                    .method(isToString()).intercept(ToStringMethod.prefixedBySimpleClassName())
+                    .method(isEquals()).intercept(EqualsMethod.isolated())
+                    .method(isHashCode()).intercept(HashCodeMethod.usingDefaultOffset())
+                    .make()
+                    .load(projectionType.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER)
+                    .getLoaded();
+
+            this.constructor = MethodHandles.publicLookup()
+                    .findConstructor(implementation, MethodType.methodType(void.class, types))
+                    .asSpreader(Object[].class, size)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        }
+
+        public Class<?> getImplementation() {
+            return implementation;
+        }
+
+        Object create(Map<String, Object> source) {
+            Object[] values = new Object[names.length];
+            for (int i = 0; i < names.length; i++) {
+                values[i] = value(i, source.get(names[i]));
+            }
+            try {
+                return constructor.invokeExact(values);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private Object value(int index, Object value) {
+            Class<?> type = types[index];
+            if (value == null) {
+                //기본형 getter에 null이면 기본값, 길이 1짜리 기본형 배열의 원소 (boolean은 0에서 변환이 안됨)
+                return type.isPrimitive() ? Array.get(Array.newInstance(type, 1), 0) : null;
+            }
+            if (nested[index]) {
+                return factory.createProjection(type, value);
+            }
+            if (ClassUtils.resolvePrimitiveIfNecessary(type).isInstance(value)) {
+                return value;
+            }
+            return DefaultConversionService.getSharedInstance().convert(value, type);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package study.datajpa.repository;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * in 절 파라미터가 많을 때 chunkSize개씩 나눠서 조회하고 결과를 합침
+ *
+ * db마다 in 절이나 파라미터 개수 제한이 있음 (오라클 in 1000개, sql server 파라미터 2100개)
+ * 하이버네이트 in_clause_parameter_padding 이 2의 거듭제곱으로 파라미터를 채우므로
+ * chunkSize도 2의 거듭제곱으로 내림, 채워도 chunkSize를 넘지 않고 sql 모양도 몇 개 안됨
+ *
+ * 같은 키는 한 번만 조회, 청크가 달라도 같은 row가 두 번 나오지 않게
+ * 결과는 청크 순서대로 합침, 청크 안의 순서는 db 마음
+ *
+ * parallel 이면 청크마다 다른 스레드, 다른 읽기 전용 트랜잭션(영속성 컨텍스트)에서 조회
+ * 그래서 결과 엔티티는 호출한 쪽 영속성 컨텍스트에 없는 준영속 상태
+ * 호출한 쪽이 트랜잭션 안이면 아직 커밋 안된 변경을 다른 스레드가 못 보므로 순서대로 실행
+ * */
+@Component
+public class InClauseExecutor implements DisposableBean {
+
+    private final int chunkSize;
+    private final ExecutorService executor;
+    private final TransactionTemplate readOnlyTx;
+
+    public InClauseExecutor(PlatformTransactionManager transactionManager,
+                            @Value("${datajpa.in-clause.chunk-size:512}") int chunkSize,
+                            @Value("${datajpa.in-clause.parallelism:4}") int parallelism) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.chunkSize = Integer.highestOneBit(chunkSize);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "in-clause-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public <K, R> List<R> execute(Collection<K> keys, Function<List<K>, List<R>> query) {
+        return execute(keys, query, false);
+    }
+
+    public <K, R> List<R> execute(Collection<K> keys, Function<List<K>, List<R>> query, boolean parallel) {
+        List<List<K>> chunks = chunks(keys);
+        if (chunks.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (chunks.size() == 1) {
+            return query.apply(chunks.get(0));
+        }
+
+        List<R> result = new ArrayList<>();
+        if (!parallel || TransactionSynchronizationManager.isActualTransactionActive()) {
+            for (List<K> chunk : chunks) {
+                result.addAll(query.apply(chunk));
+            }
+            return result;
+        }
+
+        List<CompletableFuture<List<R>>> futures = new ArrayList<>(chunks.size());
+        for (List<K> chunk : chunks) {
+            futures.add(CompletableFuture.supplyAsync(() -> readOnlyTx.execute(status -> query.apply(chunk)), executor));
+        }
+        try {
+            for (CompletableFuture<List<R>> future : futures) {
+                result.addAll(future.join());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new DataAccessResourceFailureException("in clause chunk failed", e.getCause());
+        }
+        return result;
+    }
+
+    private <K> List<List<K>> chunks(Collection<K> keys) {
+        List<K> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        List<List<K>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += chunkSize) {
+            chunks.add(distinct.subList(from, Math.min(from + chunkSize, distinct.size())));
+        }
+        return chunks;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,37 @@
+package study.datajpa.repository;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keyset 페이징 결과
+ *
+ * Slice처럼 count 쿼리 없이 다음 페이지 유무만 알려줌, size + 1개를 조회해서 판단
+ * 페이지 번호 대신 다음 페이지를 가져올 때 넘겨줄 nextToken을 가지고 있음
+ * */
+@Getter
+public class KeysetSlice<T> {
+
+    private final List<T> content;
+    private final int size;
+    private final boolean hasNext;
+
+    /** 다음 페이지가 없으면 null */
+    private final String nextToken;
+
+    public KeysetSlice(List<T> content, int size, boolean hasNext, String nextToken) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = hasNext;
+        this.nextToken = nextToken;
+    }
+
+    /** Page.map 처럼 엔티티를 dto로 바꿀 때 */
+    public <U> KeysetSlice<U> map(Function<? super T, ? extends U> converter) {
+        List<U> converted = content.stream().map(converter).collect(Collectors.toList());
+        return new KeysetSlice<>(converted, size, hasNext, nextToken);
+    }
+}
@@ -0,0 +1,182 @@
+package study.datajpa.repository;
+
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+import study.datajpa.entity.BulkJobProgress;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
+import javax.persistence.Query;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 회원 벌크 수정을 id 범위(청크)로 나눠서 실행
+ *
+ * bulkAgePlus처럼 update 한 번으로 전체를 바꾸면 테이블이 클 때 그동안 락을 오래 잡고
+ * clearAutomatically로 영속성 컨텍스트 전체를 비움
+ *
+ * 여기서는
+ * 1. id 순서로 chunkSize개씩 범위를 잡아 그 범위만 update
+ * 2. 청크마다 새 트랜잭션(REQUIRES_NEW)으로 커밋, 진행 상황(BulkJobProgress)도 같이 커밋
+ * 3. 실패 후 같은 jobName으로 다시 실행하면 마지막 청크 다음부터, 이미 끝난 작업이면 아무것도 안함
+ *    진행 상황 row는 청크 전에 따로 커밋, 같은 이름으로 동시에 처음 실행해도 한쪽이 만든 row를 같이 씀
+ *    jpql, 파라미터가 처음 실행과 다르면 이어서 하지 않고 예외 (@Repository 예외 변환으로 InvalidDataAccessApiUsageException)
+ * 4. 호출한 쪽 영속성 컨텍스트에서는 수정한 id 범위의 회원만 detach
+ *
+ * 청크는 별도 트랜잭션이므로 호출한 쪽 트랜잭션이 같은 회원을 수정하고 락을 잡고 있으면 기다리게 됨
+ * 트랜잭션 밖이나 읽기 전용 트랜잭션에서 호출
+ * */
+@Repository
+public class MemberBulkUpdater {
+
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+    private final TransactionTemplate chunkTx;
+    private final int defaultChunkSize;
+
+    public MemberBulkUpdater(EntityManager em, EntityManagerFactory emf, PlatformTransactionManager transactionManager,
+                             @Value("${datajpa.bulk.chunk-size:1000}") int defaultChunkSize) {
+        this.em = em;
+        this.emf = emf;
+        this.chunkTx = new TransactionTemplate(transactionManager);
+        this.chunkTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.defaultChunkSize = defaultChunkSize;
+    }
+
+    /** MemberRepository.bulkAgePlus 와 같은 수정, age 이상인 회원 나이 + 1 */
+    public BulkJobProgress bulkAgePlus(String jobName, int age) {
+        return bulkAgePlus(jobName, age, defaultChunkSize);
+    }
+
+    public BulkJobProgress bulkAgePlus(String jobName, int age, int chunkSize) {
+        return execute(jobName, "m.age = m.age + 1", "m.age >= :age", Map.of("age", age), chunkSize);
+    }
+
+    /**
+     * update Member m set {setClause} where {whereClause} and m.id > :fromId and m.id <= :toId
+     * 를 청크마다 실행, 파라미터 이름 fromId, toId는 쓰면 안됨
+     * 수정한 회원의 version도 같이 증가, 미리 읽어둔 엔티티로 수정하면 OptimisticLockException
+     * 벌크 update는 Auditing이 안되므로 수정시간도 같이
+     * */
+    public BulkJobProgress execute(String jobName, String setClause, String whereClause,
+                                   Map<String, ?> parameters, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        String jpql = jpql(setClause, whereClause);
+        String fingerprint = fingerprint(jpql, parameters);
+        createProgress(jobName, fingerprint);
+
+        //청크 트랜잭션이 시작되면 잠시 밀려나는 호출한 쪽 영속성 컨텍스트
+        EntityManager callerEm = EntityManagerFactoryUtils.getTransactionalEntityManager(emf);
+
+        BulkJobProgress progress;
+        do {
+            long[] range = new long[2];
+            progress = chunkTx.execute(status -> executeChunk(jobName, jpql, fingerprint, parameters, chunkSize, range));
+            if (callerEm != null && range[1] > range[0]) {
+                detachMembers(callerEm, range[0], range[1]);
+            }
+        } while (!progress.isCompleted());
+        return progress;
+    }
+
+    /**
+     * 진행 상황 row가 없으면 만들어서 바로 커밋
+     * 없는 row에는 락을 걸 수 없으므로 동시에 처음 실행하면 둘 다 insert 하고 한쪽은 기본키 위반
+     * 진 쪽은 예외를 무시하고 이긴 쪽 row를 청크에서 락을 걸고 다시 읽음
+     * */
+    private void createProgress(String jobName, String fingerprint) {
+        try {
+            chunkTx.executeWithoutResult(status -> {
+                if (em.find(BulkJobProgress.class, jobName) == null) {
+                    em.persist(new BulkJobProgress(jobName, fingerprint));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            //다른 쪽이 먼저 만듦
+        }
+    }
+
+    private BulkJobProgress executeChunk(String jobName, String jpql, String fingerprint, Map<String, ?> parameters,
+                                         int chunkSize, long[] range) {
+        //같은 작업을 동시에 두 번 실행하지 않게 진행 상황 row에 락
+        BulkJobProgress progress = em.find(BulkJobProgress.class, jobName, LockModeType.PESSIMISTIC_WRITE);
+        if (progress == null) {
+            throw new IllegalStateException("bulk job " + jobName + " progress row was removed while running");
+        }
+        if (!progress.matches(fingerprint)) {
+            throw new IllegalArgumentException("bulk job " + jobName + " was started with a different update: " + jpql);
+        }
+        if (progress.isCompleted()) {
+            return progress;
+        }
+
+        long fromId = progress.getLastId();
+        List<Long> ids = em.createQuery("select m.id from Member m where m.id > :fromId order by m.id", Long.class)
+                .setParameter("fromId", fromId)
+                .setMaxResults(chunkSize)
+                .getResultList();
+        if (ids.isEmpty()) {
+            progress.complete();
+            return progress;
+        }
+
+        long toId = ids.get(ids.size() - 1);
+        Query update = em.createQuery(jpql)
+                .setParameter("fromId", fromId)
+                .setParameter("toId", toId);
+        parameters.forEach(update::setParameter);
+
+        progress.chunkDone(toId, update.executeUpdate());
+        if (ids.size() < chunkSize) {
+            progress.complete();
+        }
+        range[0] = fromId;
+        range[1] = toId;
+        return progress;
+    }
+
+    private static String jpql(String setClause, String whereClause) {
+        return "update Member m set m.version = m.version + 1, m.lastModifiedDate = current_timestamp, "
+                + setClause
+                + " where (" + whereClause + ") and m.id > :fromId and m.id <= :toId";
+    }
+
+    /** execute(jobName, setClause, whereClause, parameters, ...)로 만든 진행 상황의 fingerprint */
+    static String fingerprint(String setClause, String whereClause, Map<String, ?> parameters) {
+        return fingerprint(jpql(setClause, whereClause), parameters);
+    }
+
+    //파라미터는 이름 순서로, 같은 값이면 Map 구현과 상관없이 같은 해시
+    private static String fingerprint(String jpql, Map<String, ?> parameters) {
+        String source = jpql + "\n" + new TreeMap<>(parameters);
+        return DigestUtils.md5DigestAsHex(source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** 영속성 컨텍스트 전체를 비우지 않고 fromId < id <= toId 인 회원만 */
+    private static void detachMembers(EntityManager callerEm, long fromId, long toId) {
+        SessionImplementor session = callerEm.unwrap(SessionImplementor.class);
+        for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContext().reentrantSafeEntityEntries()) {
+            if (entry.getKey() instanceof Member) {
+                Long id = (Long) entry.getValue().getId();
+                if (id != null && id > fromId && id <= toId) {
+                    callerEm.detach(entry.getKey());
+                }
+            }
+        }
+    }
+}
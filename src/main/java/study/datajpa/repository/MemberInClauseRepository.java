@@ -0,0 +1,27 @@
+package study.datajpa.repository;
+
+import study.datajpa.entity.Member;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * in 절 조회, MemberRepository에 같이 붙는 사용자 정의 리포지토리
+ *
+ * 이름이 아무리 많아도 InClauseExecutor가 청크로 나눠서 조회하고 합침
+ * 파라미터 개수 제한에 걸리지 않고, 파라미터 패딩으로 sql 모양(실행 계획)도 몇 개로 고정
+ * */
+public interface MemberInClauseRepository {
+
+    /**
+     * select m from Member m where m.username in :names, 청크마다 한 번
+     * 같은 이름이 여러 번 있어도 한 번만 조회
+     * */
+    List<Member> findByNames(Collection<String> names);
+
+    /**
+     * parallel 이면 청크를 여러 스레드에서 나눠서 조회, 트랜잭션 밖에서만
+     * 결과는 준영속 엔티티 (InClauseExecutor)
+     * */
+    List<Member> findByNames(Collection<String> names, boolean parallel);
+}
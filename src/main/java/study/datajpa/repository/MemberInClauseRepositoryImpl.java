@@ -0,0 +1,33 @@
+package study.datajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * MemberInClauseRepository 구현
+ *
+ * em은 스레드마다 그 스레드 트랜잭션의 영속성 컨텍스트로 연결되는 프록시라 병렬 청크에서도 그대로 사용
+ * */
+@RequiredArgsConstructor
+public class MemberInClauseRepositoryImpl implements MemberInClauseRepository {
+
+    private final EntityManager em;
+    private final InClauseExecutor inClauseExecutor;
+
+    @Override
+    public List<Member> findByNames(Collection<String> names) {
+        return findByNames(names, false);
+    }
+
+    @Override
+    public List<Member> findByNames(Collection<String> names, boolean parallel) {
+        return inClauseExecutor.execute(names, chunk ->
+                em.createQuery("select m from Member m where m.username in :names", Member.class)
+                        .setParameter("names", chunk)
+                        .getResultList(), parallel);
+    }
+}
@@ -86,6 +86,20 @@ public class MemberJpaRepository {
                         .getResultList();
     }
 
+    //offset 대신 이전 페이지 마지막 회원(username, id) 다음부터 가져오는 keyset 방식
+    //앞 페이지 row를 읽고 버리지 않으므로 뒤 페이지로 가도 느려지지 않음
+    //username이 같은 회원이 있어도 순서가 하나로 정해지게 id까지 정렬
+    public List<Member> findByPageAfter(int age, String lastUsername, Long lastId, int limit) {
+        return em.createQuery("select m from Member m where m.age = :age" +
+                        " and m.username <= :username and (m.username < :username or m.id < :id)" +
+                        " order by m.username desc, m.id desc", Member.class)
+                        .setParameter("age", age)
+                        .setParameter("username", lastUsername)
+                        .setParameter("id", lastId)
+                        .setMaxResults(limit)
+                        .getResultList();
+    }
+
     //순수 JPA 페이징과 정렬
     //내 페이지는 몇번째야, 카운트이기 때문에 getSingleResult
     public long totalCount(int age) {
@@ -98,11 +112,12 @@ public class MemberJpaRepository {
     /**
      * 순수 JPA 벌크 쿼리, 전체 값을 수정하는
      * 파라미터로 넘어온 나이보다 크거나 같으면 수정, .executeUpdate() 해야 개수가 나옴
+     * @Version, 수정시간은 직접 올림 (MemberRepository.bulkAgePlus 와 같음)
      */
     public int bulkAgePlus(int age) {
         int resultCount = em.createQuery(
-                "update Member m set m.age = m.age + 1" +
-                        "where m.age >= :age")
+                "update Member m set m.version = m.version + 1, m.lastModifiedDate = current_timestamp, " +
+                        "m.age = m.age + 1 where m.age >= :age")
                 .setParameter("age", age)
                 .executeUpdate();
         return resultCount;
@@ -0,0 +1,130 @@
+package study.datajpa.repository;
+
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+import study.datajpa.entity.Member;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset(seek) 페이징 조건
+ *
+ * offset 페이징은 앞 페이지의 row를 전부 읽고 버리므로 뒤 페이지로 갈수록 느려진다
+ * keyset 페이징은 "마지막으로 본 정렬 키 + member_id" 다음부터 읽으므로 몇 번째 페이지든 인덱스에서 바로 시작
+ *
+ * 정렬 키 값이 같은 회원이 여러 명이어도 member_id를 두 번째 정렬 키로 써서 순서가 항상 하나로 정해짐
+ * 정렬 키가 null인 회원은 비교에서 빠지므로 정렬 키로 쓰는 컬럼은 값이 채워져 있다는 전제
+ *
+ * 클라이언트에는 이 값을 Base64로 인코딩한 continuation token으로 넘겨주고 다음 요청때 그대로 받는다
+ * */
+@Getter
+public class MemberKeyset {
+
+    /** keyset 정렬에 쓸 수 있는 키, 각각 (키, member_id) 인덱스가 있어야 뒤 페이지도 빠름 */
+    public enum SortKey {
+        ID("id"), USERNAME("username"), AGE("age");
+
+        private final String property;
+
+        SortKey(String property) {
+            this.property = property;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+
+        public static SortKey of(String property) {
+            for (SortKey key : values()) {
+                if (key.property.equalsIgnoreCase(property)) {
+                    return key;
+                }
+            }
+            throw new IllegalArgumentException("keyset 정렬을 지원하지 않는 속성입니다: " + property);
+        }
+    }
+
+    private static final char SEPARATOR = ':';
+
+    private final SortKey sortKey;
+    private final Sort.Direction direction;
+
+    /** 이전 페이지 마지막 회원의 정렬 키 값, 첫 페이지면 null */
+    private final Object lastValue;
+    private final Long lastId;
+
+    private MemberKeyset(SortKey sortKey, Sort.Direction direction, Object lastValue, Long lastId) {
+        this.sortKey = sortKey;
+        this.direction = direction;
+        this.lastValue = lastValue;
+        this.lastId = lastId;
+    }
+
+    /** 첫 페이지 */
+    public static MemberKeyset first(SortKey sortKey, Sort.Direction direction) {
+        return new MemberKeyset(sortKey, direction, null, null);
+    }
+
+    /** 파라미터로 넘어온 회원 다음부터 */
+    public MemberKeyset after(Member member) {
+        Object value;
+        switch (sortKey) {
+            case USERNAME:
+                value = member.getUsername();
+                break;
+            case AGE:
+                value = member.getAge();
+                break;
+            default:
+                value = member.getId();
+        }
+        return new MemberKeyset(sortKey, direction, value, member.getId());
+    }
+
+    public boolean isFirst() {
+        return lastId == null;
+    }
+
+    /** 정렬키:방향:마지막id:마지막값 을 URL에 그대로 쓸 수 있게 인코딩 */
+    public String encode() {
+        if (isFirst()) {
+            return null;
+        }
+        String raw = sortKey.name() + SEPARATOR + direction.name() + SEPARATOR + lastId + SEPARATOR + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 클라이언트가 돌려준 token을 다시 조건으로
+     * 값에 ':'가 들어가도 되게 마지막 값은 나머지 전체로 자름
+     * */
+    public static MemberKeyset decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(String.valueOf(SEPARATOR), 4);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("잘못된 keyset token 입니다: " + token);
+            }
+            SortKey sortKey = SortKey.valueOf(parts[0]);
+            Sort.Direction direction = Sort.Direction.valueOf(parts[1]);
+            Long lastId = Long.valueOf(parts[2]);
+
+            Object lastValue;
+            switch (sortKey) {
+                case USERNAME:
+                    lastValue = parts[3];
+                    break;
+                case AGE:
+                    lastValue = Integer.valueOf(parts[3]);
+                    break;
+                default:
+                    lastValue = Long.valueOf(parts[3]);
+            }
+            return new MemberKeyset(sortKey, direction, lastValue, lastId);
+        } catch (IllegalArgumentException e) {
+            //Base64, enum, 숫자 변환 실패 모두 IllegalArgumentException 계열
+            throw new IllegalArgumentException("잘못된 keyset token 입니다: " + token, e);
+        }
+    }
+}
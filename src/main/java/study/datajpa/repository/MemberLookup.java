@@ -0,0 +1,113 @@
+package study.datajpa.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * 자주 조회되는 회원 단건 조회 앞에 두는 single flight
+ *
+ * 같은 id(username)로 동시에 들어온 조회는 db 조회 한 번을 같이 기다렸다가 결과를 나눠 받음
+ * 엔티티는 조회한 스레드의 영속성 컨텍스트 소속이라 다른 요청과 나눠 쓸 수 없으므로 MemberDto로 바꿔서 공유
+ * 공유되는 dto 이므로 받은 쪽에서 수정하면 안됨
+ *
+ * 조회는 새 읽기 전용 트랜잭션(REQUIRES_NEW)에서
+ * 트랜잭션이 없으면 REQUIRES_NEW만으로는 OSIV가 스레드에 묶어둔 영속성 컨텍스트에서 트랜잭션이 시작되므로
+ * 조회하는 동안 그 영속성 컨텍스트를 떼어내고 새 EntityManager로 조회, 트랜잭션이 끝나면 닫고 다시 묶음
+ * 그래서 조회한 엔티티는 요청 영속성 컨텍스트에 남지 않고 이 조회의 커넥션은 트랜잭션이 끝나면 반납
+ * 단 요청에서 먼저 트랜잭션 없이 조회했다면(findVersionById 등) 요청 영속성 컨텍스트가 그 커넥션을 요청 끝까지 잡고 있으므로
+ * 이 조회는 커넥션을 하나 더 씀
+ * 쓰기 트랜잭션 안에서 부르면 그 트랜잭션의 커밋 안된 변경을 봐야 하므로 합치지 않고 바로 조회
+ *
+ * 메트릭 datajpa.member.lookup (operation=findById|findByUsername, result=executed|shared)
+ * shared 가 중복 제거된 호출 수, /actuator/metrics/datajpa.member.lookup?tag=result:shared
+ * */
+@Component
+public class MemberLookup {
+
+    private final MemberRepository memberRepository;
+    private final EntityManagerFactory emf;
+    private final TransactionTemplate readOnlyTx;
+    private final SingleFlight<Long, Optional<MemberDto>> byId = new SingleFlight<>();
+    private final SingleFlight<String, Optional<MemberDto>> byUsername = new SingleFlight<>();
+    private final Counter byIdExecuted;
+    private final Counter byIdShared;
+    private final Counter byUsernameExecuted;
+    private final Counter byUsernameShared;
+
+    public MemberLookup(MemberRepository memberRepository, EntityManagerFactory emf,
+                        PlatformTransactionManager transactionManager, MeterRegistry registry) {
+        this.memberRepository = memberRepository;
+        this.emf = emf;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.readOnlyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.byIdExecuted = counter(registry, "findById", "executed");
+        this.byIdShared = counter(registry, "findById", "shared");
+        this.byUsernameExecuted = counter(registry, "findByUsername", "executed");
+        this.byUsernameShared = counter(registry, "findByUsername", "shared");
+        Gauge.builder("datajpa.member.lookup.in-flight", () -> byId.inFlight() + byUsername.inFlight())
+                .description("member lookups currently running against the database")
+                .register(registry);
+    }
+
+    public Optional<MemberDto> findById(Long id) {
+        return coalesce(byId, id, () -> memberRepository.findById(id), byIdExecuted, byIdShared);
+    }
+
+    public Optional<MemberDto> findByUsername(String username) {
+        return coalesce(byUsername, username, () -> Optional.ofNullable(memberRepository.findMemberByUsername(username)),
+                byUsernameExecuted, byUsernameShared);
+    }
+
+    private <K> Optional<MemberDto> coalesce(SingleFlight<K, Optional<MemberDto>> flight, K key,
+                                             Supplier<Optional<Member>> query, Counter executed, Counter shared) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            executed.increment();
+            return query.get().map(MemberLookup::toDto);
+        }
+
+        SingleFlight.Result<Optional<MemberDto>> result = flight.execute(key, () -> isolated(query));
+        (result.isShared() ? shared : executed).increment();
+        return result.getValue();
+    }
+
+    //트랜잭션이 있으면 REQUIRES_NEW가 그 영속성 컨텍스트를 보류하므로 OSIV 것만 직접 떼어냄
+    private Optional<MemberDto> isolated(Supplier<Optional<Member>> query) {
+        Object requestHolder = TransactionSynchronizationManager.isActualTransactionActive()
+                ? null : TransactionSynchronizationManager.unbindResourceIfPossible(emf);
+        try {
+            return readOnlyTx.execute(status -> query.get().map(MemberLookup::toDto));
+        } finally {
+            if (requestHolder != null) {
+                TransactionSynchronizationManager.bindResource(emf, requestHolder);
+            }
+        }
+    }
+
+    private static MemberDto toDto(Member member) {
+        return new MemberDto(member.getId(), member.getUsername(),
+                member.getTeam() == null ? null : member.getTeam().getName());
+    }
+
+    private static Counter counter(MeterRegistry registry, String operation, String result) {
+        return Counter.builder("datajpa.member.lookup")
+                .description("member lookups, shared = served by another caller's in-flight query")
+                .tag("operation", operation)
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -0,0 +1,22 @@
+package study.datajpa.repository;
+
+import study.datajpa.entity.Member;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 여러 id를 한 번에 조회, MemberRepository에 같이 붙는 사용자 정의 리포지토리
+ *
+ * findById를 id마다 부르면 회원 select 한 번 + 팀 지연 로딩 select 한 번씩
+ * 여기서는 회원을 batchSize개씩 in 절로, 팀도 batchSize개씩 한 번에
+ * */
+public interface MemberMultiLoadRepository {
+
+    /**
+     * 넘긴 id 순서대로 반환, 없는 id는 빠짐, 같은 id가 여러 번이면 같은 회원이 여러 번
+     * 영속성 컨텍스트에 이미 있는 회원, 2차 캐시에 있는 팀은 db에서 다시 조회하지 않음
+     * 팀은 초기화된 상태로 반환
+     * */
+    List<Member> findAllByIdBatched(Collection<Long> ids);
+}
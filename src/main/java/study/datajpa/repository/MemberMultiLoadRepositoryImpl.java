@@ -0,0 +1,83 @@
+package study.datajpa.repository;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * MemberMultiLoadRepository 구현, 하이버네이트 Session.byMultipleIds (multiLoad)
+ *
+ * enableSessionCheck 영속성 컨텍스트에 있는 id는 빼고 조회
+ * 2차 캐시 대상 엔티티(Team)는 캐시에서 먼저 찾고 없는 id만 조회
+ * enableOrderedReturn 결과를 넘긴 id 순서대로, 없는 id 자리는 null
+ *
+ * 팀은 회원의 team 프록시 id를 모아서 한 번 더 multiLoad
+ * 영속성 컨텍스트에 팀이 올라오므로 프록시를 초기화할 때 추가 select 없음
+ * 바이트코드 향상을 하면 초기화 안된 팀도 영속성 컨텍스트에 있는 것으로 보이므로 팀은 세션 확인 없이 조회
+ * */
+public class MemberMultiLoadRepositoryImpl implements MemberMultiLoadRepository {
+
+    private final EntityManager em;
+    private final int batchSize;
+
+    public MemberMultiLoadRepositoryImpl(EntityManager em,
+                                         @Value("${datajpa.multi-load.batch-size:100}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.em = em;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Member> findAllByIdBatched(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Session session = em.unwrap(Session.class);
+
+        List<Member> members = session.byMultipleIds(Member.class)
+                .withBatchSize(batchSize)
+                .enableSessionCheck(true)
+                .enableOrderedReturn(true)
+                .multiLoad(new ArrayList<>(ids))
+                .stream()
+                .filter(Objects::nonNull)
+                .collect(toList());
+
+        //지연 로딩 팀은 HibernateProxy, 바이트코드 향상을 하면 향상된 Team 자신이 프록시 역할
+        //PersistenceUnitUtil은 둘 다 초기화하지 않고 id를 꺼냄
+        PersistenceUnitUtil unitUtil = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        Set<Serializable> teamIds = new LinkedHashSet<>();
+        for (Member member : members) {
+            Team team = member.getTeam();
+            if (team != null && !Hibernate.isInitialized(team)) {
+                teamIds.add((Serializable) unitUtil.getIdentifier(team));
+            }
+        }
+        if (!teamIds.isEmpty()) {
+            session.byMultipleIds(Team.class)
+                    .withBatchSize(batchSize)
+                    .enableSessionCheck(false)
+                    .multiLoad(new ArrayList<>(teamIds));
+            members.forEach(member -> Hibernate.initialize(member.getTeam()));
+        }
+        return members;
+    }
+}
@@ -0,0 +1,38 @@
+package study.datajpa.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.PageVersion;
+import study.datajpa.entity.Member;
+
+import java.util.function.Consumer;
+
+/**
+ * count 쿼리를 줄인 페이징, MemberRepository에 같이 붙는 사용자 정의 리포지토리
+ *
+ * Page를 반환하는 findByAge, findAll(pageable)은 페이지마다 count(*)가 나감
+ * 데이터가 많으면 내용 조회보다 count가 더 오래 걸리므로 CountMode로 캐시하거나 추정값을 씀
+ * */
+public interface MemberPagingRepository {
+
+    /** findAll(pageable) + CountMode */
+    Page<Member> findAllPage(Pageable pageable, CountMode countMode);
+
+    /** findByAge(age, pageable) + CountMode */
+    Page<Member> findPageByAge(int age, Pageable pageable, CountMode countMode);
+
+    /**
+     * findAllPage와 같은 페이지를 List로 만들지 않고 한 건씩 action에 넘김, 팀 이름 포함
+     * 엔티티 대신 dto로 바로 조회하고 커서로 읽으므로 페이지 크기가 커도 메모리 사용량이 일정
+     * 내용을 다 넘긴 뒤 전체 개수를 반환, count 쿼리가 필요 없으면 실행하지 않음
+     * */
+    long scrollPage(Pageable pageable, CountMode countMode, Consumer<MemberDto> action);
+
+    /**
+     * findAllPage, scrollPage 와 같은 정렬, offset, limit 으로 id, version, 수정시간만 조회한 페이지 버전
+     * 조건부 GET에서 내용을 조회하기 전에 304를 판단할 때, 테이블 전체가 아닌 페이지 크기만큼만 읽음
+     * 전체 개수도 CountMode 대로, 첫 페이지나 마지막 페이지가 size보다 적으면 count 쿼리 없음
+     * */
+    PageVersion findPageVersion(Pageable pageable, CountMode countMode);
+}
@@ -0,0 +1,179 @@
+package study.datajpa.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.PageVersion;
+import study.datajpa.dto.ResourceVersion;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * MemberPagingRepository 구현
+ *
+ * count 캐시 키는 count 쿼리 + 파라미터, 페이지 번호나 정렬과는 상관없으므로 같은 조건이면 모든 페이지가 같이 씀
+ * */
+public class MemberPagingRepositoryImpl implements MemberPagingRepository {
+
+    /** scrollPage 커서가 db에서 한 번에 가져오는 row 수, 페이지 크기와 상관없이 이만큼만 메모리에 */
+    private static final int SCROLL_FETCH_SIZE = 100;
+
+    private final EntityManager em;
+    private final Cache<List<Object>, Long> countCache;
+
+    public MemberPagingRepositoryImpl(EntityManager em,
+                                      @Value("${datajpa.paging.count-cache-ttl:30s}") Duration countCacheTtl,
+                                      @Value("${datajpa.paging.count-cache-size:1000}") long countCacheSize) {
+        this.em = em;
+        this.countCache = Caffeine.newBuilder()
+                .expireAfterWrite(countCacheTtl)
+                .maximumSize(countCacheSize)
+                .build();
+    }
+
+    @Override
+    public Page<Member> findAllPage(Pageable pageable, CountMode countMode) {
+        return page("select m from Member m", "select count(m) from Member m", Map.of(),
+                pageable, countMode, true);
+    }
+
+    @Override
+    public Page<Member> findPageByAge(int age, Pageable pageable, CountMode countMode) {
+        return page("select m from Member m where m.age = :age", "select count(m) from Member m where m.age = :age",
+                Map.of("age", age), pageable, countMode, false);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long scrollPage(Pageable pageable, CountMode countMode, Consumer<MemberDto> action) {
+        String jpql = "select new study.datajpa.dto.MemberDto(m.id, m.username, t.name)"
+                + " from Member m left join m.team t";
+        org.hibernate.query.Query<MemberDto> query = em.unwrap(Session.class)
+                .createQuery(QueryUtils.applySorting(jpql, pageable.getSort(), "m"), MemberDto.class)
+                .setFetchSize(SCROLL_FETCH_SIZE);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+
+        int read = 0;
+        try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                action.accept((MemberDto) results.get(0));
+                read++;
+            }
+        }
+        return total(pageable, read,
+                countSupplier("select count(m) from Member m", Map.of(), countMode, true));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PageVersion findPageVersion(Pageable pageable, CountMode countMode) {
+        String jpql = "select new study.datajpa.dto.ResourceVersion(m.id, m.version, m.lastModifiedDate)"
+                + " from Member m";
+        TypedQuery<ResourceVersion> query = em.createQuery(
+                QueryUtils.applySorting(jpql, pageable.getSort(), "m"), ResourceVersion.class);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        List<ResourceVersion> rows = query.getResultList();
+        return PageVersion.of(rows, total(pageable, rows.size(),
+                countSupplier("select count(m) from Member m", Map.of(), countMode, true)));
+    }
+
+    /** PageableExecutionUtils.getPage 와 같은 규칙, 읽은 개수로 알 수 있으면 count 쿼리 생략 */
+    private static long total(Pageable pageable, int read, LongSupplier count) {
+        if (pageable.isUnpaged() || (pageable.getOffset() == 0 && pageable.getPageSize() > read)) {
+            return read;
+        }
+        if (read != 0 && pageable.getPageSize() > read) {
+            return pageable.getOffset() + read;
+        }
+        return count.getAsLong();
+    }
+
+    /** wholeTable이면 조건 없는 조회, 추정 개수를 쓸 수 있음 */
+    private Page<Member> page(String jpql, String countJpql, Map<String, Object> parameters,
+                              Pageable pageable, CountMode countMode, boolean wholeTable) {
+        TypedQuery<Member> query = em.createQuery(QueryUtils.applySorting(jpql, pageable.getSort(), "m"), Member.class);
+        parameters.forEach(query::setParameter);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        List<Member> content = query.getResultList();
+
+        //첫 페이지, 마지막 페이지가 size보다 적으면 supplier를 부르지 않음
+        return PageableExecutionUtils.getPage(content, pageable, countSupplier(countJpql, parameters, countMode, wholeTable));
+    }
+
+    private LongSupplier countSupplier(String countJpql, Map<String, Object> parameters,
+                                       CountMode countMode, boolean wholeTable) {
+        LongSupplier exact = () -> count(countJpql, parameters);
+        LongSupplier cached = () -> countCache.get(List.of(countJpql, new TreeMap<>(parameters)),
+                key -> exact.getAsLong());
+        switch (countMode) {
+            case CACHED:
+                return cached;
+            case ESTIMATED:
+                return wholeTable ? () -> estimateMemberCount(cached) : cached;
+            default:
+                return exact;
+        }
+    }
+
+    private long count(String countJpql, Map<String, Object> parameters) {
+        TypedQuery<Long> query = em.createQuery(countJpql, Long.class);
+        parameters.forEach(query::setParameter);
+        return query.getSingleResult();
+    }
+
+    /**
+     * db가 관리하는 테이블 통계의 row 수, 테이블을 읽지 않으므로 빠르지만 최신이 아닐 수 있음
+     * h2는 ROW_COUNT_ESTIMATE, mysql(InnoDB)은 TABLE_ROWS
+     * */
+    private long estimateMemberCount(LongSupplier fallback) {
+        Dialect dialect = em.unwrap(Session.class).getSessionFactory()
+                .unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+
+        String sql;
+        if (dialect instanceof H2Dialect) {
+            sql = "select row_count_estimate from information_schema.tables"
+                    + " where table_schema = schema() and upper(table_name) = 'MEMBER'";
+        } else if (dialect instanceof MySQLDialect) {
+            sql = "select table_rows from information_schema.tables"
+                    + " where table_schema = database() and table_name = 'member'";
+        } else {
+            return fallback.getAsLong();
+        }
+
+        List<?> result = em.createNativeQuery(sql).getResultList();
+        if (result.isEmpty() || result.get(0) == null) {
+            return fallback.getAsLong();
+        }
+        return ((Number) result.get(0)).longValue();
+    }
+}
@@ -8,11 +8,11 @@ import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.ResourceVersion;
 import study.datajpa.entity.Member;
 
 import javax.persistence.LockModeType;
 import javax.persistence.QueryHint;
-import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -41,7 +41,8 @@ import java.util.Optional;
  *
  * 엔티티 타입과 pk값
  * */
-public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom {
+public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom, MemberPagingRepository,
+        MemberInClauseRepository, MemberMultiLoadRepository {
 
     /**
      * 공통기능 말고 다른 기능 메서드를 만들고 이 인터페이스를 구현하면 공통기능메서드까지 다 상속받아야함
@@ -109,14 +110,29 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
             "from Member m join m.team t")
     List<MemberDto> findMemberDto();
 
+    /**
+     * findMemberDto 페이징, 엔티티를 만들지 않고 바로 dto
+     *
+     * 영속성 컨텍스트에 올라가지 않으므로 스냅샷, 변경감지 비용이 없음, 조회한 dto를 바꿔도 db에 반영안됨
+     * 팀이 없는 회원도 나오도록 left join, 팀 이름은 null
+     * count는 조인이 필요없으므로 분리
+     * */
+    @Query(value = "select new study.datajpa.dto.MemberDto(m.id, m.username, t.name) " +
+            "from Member m left join m.team t",
+            countQuery = "select count(m) from Member m")
+    Page<MemberDto> findMemberDtoPage(Pageable pageable);
+
     /**
      * 컬렉션 파라미터 바인딩, in절로 여러 개를 조회하고 싶을때 사용
      *
      * in절에 괄호 쉼표는 자동으로 처리됨
      * 다른 것들도 받을 수 있게 List가 아닌 Collection으로 받음
+     *
+     * 개수마다 다른 sql이 만들어지고 db 파라미터 개수 제한을 넘으면 실패하므로
+     * 청크로 나눠서 조회하는 MemberInClauseRepository.findByNames 로 옮김
      * */
-    @Query("select m from Member m where m.username in :names")
-    List<Member> findByNames(@Param("names") Collection<String> names);
+//    @Query("select m from Member m where m.username in :names")
+//    List<Member> findByNames(@Param("names") Collection<String> names);
 
     /** find By 사이에 어떤게 와도 상관없음, By 뒤에는 equal */
     List<Member> findListByUsername(String name); //컬렉션
@@ -164,11 +180,22 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
      * 벌크연산은 영컨 거치지 않고 바로 db에 반영해주므로 clearAutomatically = true를 해줘야
      * 이렇게 하면 영컨에도 반영 바로 되는
      * 벌크 연산 후 바로 조회해야 할 떄 사용하는
+     * 테이블이 크면 락을 오래 잡으므로 MemberBulkUpdater로 나눠서
+     * 벌크 연산은 @Version을 올려주지 않으므로 직접 증가, 안 올리면 그 전에 읽은 엔티티가 벌크 결과를 덮어씀
+     * Auditing 도 안되므로 수정시간도 직접, 조건부 GET(Last-Modified)이 바뀐 걸 알 수 있게
      * */
     @Modifying(clearAutomatically = true)
-    @Query("update Member m set m.age = m.age + 1 where m.age >= :age")
+    @Query("update Member m set m.version = m.version + 1, m.lastModifiedDate = current_timestamp, " +
+            "m.age = m.age + 1 where m.age >= :age")
     int bulkAgePlus(@Param("age") int age);
 
+    /**
+     * 조건부 GET, 엔티티를 만들지 않고 버전과 수정시간만 (MemberController)
+     * */
+    @Query("select new study.datajpa.dto.ResourceVersion(m.id, m.version, m.lastModifiedDate) " +
+            "from Member m where m.id = :id")
+    Optional<ResourceVersion> findVersionById(@Param("id") Long id);
+
     /** 페치 조인 */
     @Query("select m from Member m join fetch m.team")
     List<Member> findMemberFetchJoin();
@@ -223,6 +250,7 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
      * JPA를 통해 lock을 어노테이션을 통해 편리하게 사용할 수 있다, 쓸 일이 많진 않음
      * 실시간 트래픽이 많은 서비스에선 걸면 안됨
      * select 할때 다른 걸 손대지 못하게 락을 건다
+     * 같은 회원을 동시에 수정하면 줄을 서서 기다리므로, 충돌이 드물면 @Version + OptimisticRetryTemplate
      */
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     List<Member> findLockByUsername(String name);
@@ -243,8 +271,10 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     /**
      * 이렇게 제네릭으로 주고 파라미터를 타입으로 받을 수도 있음
      *컬럼을 갖고오는게 다를 수도 있으니
+     *
+     * 중첩 프로젝션도 컬럼만 조회하도록 MemberRepositoryCustom 으로 옮겨서 직접 구현
      * */
-    <T> List<T> findProjectionsByUsername(@Param("username") String username, Class<T> type);
+//    <T> List<T> findProjectionsByUsername(@Param("username") String username, Class<T> type);
 
     /**
      * 동적 Projections
@@ -3,6 +3,7 @@ package study.datajpa.repository;
 import study.datajpa.entity.Member;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 사용자 정의 리포지토리, 실무에서 중요
@@ -14,4 +15,34 @@ import java.util.List;
  * */
 public interface MemberRepositoryCustom {
     List<Member> findMemberCustom();
+
+    /**
+     * Keyset(seek) 페이징, offset 없이 마지막으로 본 정렬 키 + member_id 다음부터 size개
+     * 첫 페이지는 MemberKeyset.first(...), 다음 페이지는 결과의 nextToken을 MemberKeyset.decode(...)
+     * */
+    KeysetSlice<Member> findByKeyset(MemberKeyset keyset, int size);
+
+    /**
+     * 대량 저장, chunkSize개마다 flush해서 jdbc batch로 insert 하고 영속성 컨텍스트를 비움
+     * 영속성 컨텍스트에 회원이 계속 쌓이지 않아 몇 건을 넣든 메모리 사용량이 일정
+     * 같은 트랜잭션에서 이전에 조회한 엔티티도 같이 준영속 상태가 되므로 주의
+     * 청크 하나의 회원은 등록자, 등록시간이 모두 같음 (AuditStamps 벌크 범위)
+     * */
+    void saveAllBatched(Iterable<Member> members, int chunkSize);
+
+    /**
+     * 전체 회원을 팀과 같이 한 건씩 읽어서 action에 넘김, 전체를 List로 만들지 않음
+     * 앞으로만 가는 커서로 fetchSize개씩 db에서 가져오고 처리한 회원은 영속성 컨텍스트에서 바로 뺌
+     * 회원이 몇 명이든 메모리 사용량이 일정, 읽은 회원 수를 반환
+     * */
+    long scrollAllWithTeam(int fetchSize, Consumer<Member> action);
+
+    /**
+     * 동적 Projections, MemberRepository 에서 옮겨옴
+     * 인터페이스 프로젝션이면 프로젝션이 가리키는 컬럼만 select, 중첩 프로젝션은 연관관계를 left join 해서 컬럼만
+     * NestedClosedProjection 이면 select m.username, t.name from member m left join team t
+     * 평평한 결과 한 줄을 중첩 Map으로 모아서 프로젝션으로 만듬
+     * DTO 클래스면 생성자 파라미터 이름의 컬럼만, 엔티티 타입이면 엔티티
+     * */
+    <T> List<T> findProjectionsByUsername(String username, Class<T> type);
 }
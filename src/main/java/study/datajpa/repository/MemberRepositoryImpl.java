@@ -1,10 +1,37 @@
 package study.datajpa.repository;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.mapping.PreferredConstructor;
+import org.springframework.data.mapping.model.PreferredConstructorDiscoverer;
+import org.springframework.data.projection.ProjectionInformation;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.auditing.AuditStamps;
 import study.datajpa.entity.Member;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.EntityType;
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static java.util.stream.Collectors.toList;
 
 /**
  * 실무에서는 주로 QueryDSL이나 SpringJdbcTemplate을 함께 사용할 때
@@ -33,11 +60,248 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
     //하나만 있으면 자동의존주입 해줌 @Autowired없어도
     private final EntityManager em;
 
+    //saveAllBatched 청크마다 등록자/시간 한 번만
+    private final AuditStamps auditStamps;
+
+    //findProjectionsByUsername 인터페이스 프로젝션 구현 클래스 캐시, 리포지토리 프록시와 같은 빈
+    private final GeneratedProjectionFactory projectionFactory;
+
     //순수한 jpa쓰는
     @Override
     public List<Member> findMemberCustom() {
         return em.createQuery("select m from Member m")
                 .getResultList();
     }
+
+    /**
+     * 정렬 키가 username 이고 오름차순이면
+     * where m.username >= :value and (m.username > :value or m.id > :id)
+     * order by m.username asc, m.id asc
+     *
+     * 앞의 >= 조건은 결과에는 영향이 없지만 (username, member_id) 인덱스의 시작 위치를 바로 찾게 해줌
+     * or 조건만 있으면 DB에 따라 인덱스를 처음부터 훑을 수 있음
+     * size + 1개를 조회해서 다음 페이지가 있는지 판단, Slice와 같은 방식
+     * */
+    @Override
+    public KeysetSlice<Member> findByKeyset(MemberKeyset keyset, int size) {
+        String property = "m." + keyset.getSortKey().getProperty();
+        boolean asc = keyset.getDirection().isAscending();
+        String order = asc ? " asc" : " desc";
+
+        StringBuilder jpql = new StringBuilder("select m from Member m");
+        if (!keyset.isFirst()) {
+            if (keyset.getSortKey() == MemberKeyset.SortKey.ID) {
+                jpql.append(" where m.id ").append(asc ? ">" : "<").append(" :id");
+            } else {
+                jpql.append(" where ").append(property).append(asc ? " >= " : " <= ").append(":value")
+                        .append(" and (").append(property).append(asc ? " > " : " < ").append(":value")
+                        .append(" or m.id ").append(asc ? ">" : "<").append(" :id)");
+            }
+        }
+        jpql.append(" order by ");
+        if (keyset.getSortKey() != MemberKeyset.SortKey.ID) {
+            jpql.append(property).append(order).append(", ");
+        }
+        jpql.append("m.id").append(order);
+
+        TypedQuery<Member> query = em.createQuery(jpql.toString(), Member.class);
+        if (!keyset.isFirst()) {
+            query.setParameter("id", keyset.getLastId());
+            if (keyset.getSortKey() != MemberKeyset.SortKey.ID) {
+                query.setParameter("value", keyset.getLastValue());
+            }
+        }
+        List<Member> result = query
+                .setMaxResults(size + 1)
+                .getResultList();
+
+        boolean hasNext = result.size() > size;
+        List<Member> content = hasNext ? result.subList(0, size) : result;
+        String nextToken = hasNext ? keyset.after(content.get(size - 1)).encode() : null;
+
+        return new KeysetSlice<>(content, size, hasNext, nextToken);
+    }
+
+    /**
+     * 사용자 정의 리포지토리 메서드는 SimpleJpaRepository처럼 트랜잭션이 자동으로 걸리지 않으므로 직접
+     * jdbc batch_size와 chunkSize를 맞추면 chunk 하나가 insert batch 하나로 나감
+     * 팀은 미리 저장되어 있어야함, cascade가 없으므로 회원 insert시 team_id만 사용
+     * */
+    @Override
+    @Transactional
+    public void saveAllBatched(Iterable<Member> members, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize는 1 이상이어야 합니다: " + chunkSize);
+        }
+
+        //청크 하나는 등록자, 등록시간이 모두 같음, 엔티티마다 auditor/now() 호출 안함
+        try (AuditStamps.BulkScope bulk = auditStamps.bulk()) {
+            int count = 0;
+            for (Member member : members) {
+                em.persist(member);
+                if (++count % chunkSize == 0) {
+                    em.flush();
+                    em.clear();
+                    bulk.nextChunk();
+                }
+            }
+            em.flush();
+            em.clear();
+        }
+    }
+
+    /**
+     * getResultList()는 결과 전체를 List로 만들고 영속성 컨텍스트에도 전부 쌓아두므로 건수만큼 메모리를 먹음
+     * 하이버네이트 scroll은 jdbc ResultSet을 그대로 들고 있으면서 한 row씩 엔티티로 만듬
+     *
+     * readOnly라 스냅샷을 안 만들고, 처리한 회원과 팀은 바로 detach 해서 영속성 컨텍스트가 커지지 않음
+     * 팀은 페치 조인으로 같이 가져오므로 추가 쿼리 없음
+     * mysql은 url에 useCursorFetch=true가 있어야 fetchSize만큼 나눠서 가져옴, 없으면 결과를 한 번에 다 받음
+     * */
+    @Override
+    @Transactional(readOnly = true)
+    public long scrollAllWithTeam(int fetchSize, Consumer<Member> action) {
+        Session session = em.unwrap(Session.class);
+
+        long count = 0;
+        try (ScrollableResults results = session
+                .createQuery("select m from Member m left join fetch m.team order by m.id", Member.class)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                Member member = (Member) results.get(0);
+                action.accept(member);
+
+                session.detach(member);
+                if (member.getTeam() != null) {
+                    session.detach(member.getTeam());
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 스프링 데이터 JPA의 동적 프로젝션은 루트 프로퍼티만 컬럼으로 select 하고 중첩 프로젝션은 연관 엔티티 전체를 select
+     * 여기서는 프로젝션 인터페이스를 따라가면서 중첩 프로젝션은 left join, 나머지는 그 컬럼만 select
+     *
+     * select m.username, t.name from member m left join team t on m.team_id=t.team_id where m.username=?
+     * 결과 한 줄 [username, team.id, team.name] -> {username, team: {name}} 중첩 Map -> 프로젝션
+     * 중첩 프로젝션마다 join 한 엔티티의 id를 같이 select 해서 id가 null(팀이 없는 회원)일 때만 getTeam()이 null
+     * 팀 이름처럼 select 한 컬럼이 모두 null 이어도 팀이 있으면 getTeam()은 null이 아님
+     * */
+    @Override
+    @Transactional(readOnly = true)
+    public <T> List<T> findProjectionsByUsername(String username, Class<T> type) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+
+        if (type.isAssignableFrom(Member.class)) {
+            CriteriaQuery<Member> query = cb.createQuery(Member.class);
+            Root<Member> m = query.from(Member.class);
+            query.select(m).where(cb.equal(m.get("username"), username));
+            return em.createQuery(query).getResultList().stream().map(type::cast).collect(toList());
+        }
+
+        if (!type.isInterface()) {
+            //DTO, 생성자 파라미터 이름과 같은 컬럼으로 생성자 호출
+            CriteriaQuery<T> query = cb.createQuery(type);
+            Root<Member> m = query.from(Member.class);
+            PreferredConstructor<T, ?> constructor = PreferredConstructorDiscoverer.discover(type);
+            if (constructor == null) {
+                throw new InvalidDataAccessApiUsageException(type.getName() + " 에 사용할 생성자가 없습니다");
+            }
+            List<Selection<?>> selections = new ArrayList<>();
+            constructor.getParameters().forEach(parameter -> selections.add(m.get(parameter.getName())));
+            query.select(cb.construct(type, selections.toArray(new Selection<?>[0])))
+                    .where(cb.equal(m.get("username"), username));
+            return em.createQuery(query).getResultList();
+        }
+
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Member> m = query.from(Member.class);
+        List<Selection<?>> selections = new ArrayList<>();
+        List<String[]> paths = new ArrayList<>();
+        List<Integer> joinIds = new ArrayList<>();
+        selectProjected(type, m, new ArrayList<>(), selections, paths, joinIds);
+        query.multiselect(selections).where(cb.equal(m.get("username"), username));
+
+        List<T> result = new ArrayList<>();
+        for (Tuple tuple : em.createQuery(query).getResultList()) {
+            Map<String, Object> row = new HashMap<>();
+            for (int i = 0; i < paths.size(); i++) {
+                if (!joinIds.contains(i)) {
+                    put(row, paths.get(i), 0, tuple.get(i));
+                }
+            }
+            //join 한 엔티티가 없으면 중첩 Map 대신 null, 바깥 join 부터
+            for (int i : joinIds) {
+                if (tuple.get(i) == null) {
+                    putNull(row, paths.get(i), 0);
+                }
+            }
+            result.add(projectionFactory.createProjection(type, row));
+        }
+        return result;
+    }
+
+    /**
+     * 프로젝션의 getter를 따라가며 select 할 컬럼과 그 경로를 모음
+     * 중첩 프로젝션 getter는 같은 이름의 연관관계를 left join 하고 그 안으로 들어감
+     * join 한 엔티티의 id도 select 하고 그 위치를 joinIds에 모음, 경로는 중첩 프로젝션 자신
+     * */
+    private void selectProjected(Class<?> type, From<?, ?> from, List<String> path,
+                                 List<Selection<?>> selections, List<String[]> paths, List<Integer> joinIds) {
+        ProjectionInformation information = projectionFactory.getProjectionInformation(type);
+        if (!information.isClosed()) {
+            throw new InvalidDataAccessApiUsageException(type.getName()
+                    + " 는 오픈 프로젝션(@Value)이라 컬럼만 select 할 수 없습니다");
+        }
+        for (PropertyDescriptor property : information.getInputProperties()) {
+            List<String> propertyPath = new ArrayList<>(path);
+            propertyPath.add(property.getName());
+            if (GeneratedProjectionFactory.isNestedProjection(property.getPropertyType())) {
+                Join<?, ?> join = from.join(property.getName(), JoinType.LEFT);
+                EntityType<?> joined = em.getMetamodel().entity(join.getJavaType());
+                joinIds.add(selections.size());
+                selections.add(join.get(joined.getId(joined.getIdType().getJavaType()).getName()));
+                paths.add(propertyPath.toArray(new String[0]));
+                selectProjected(property.getPropertyType(), join, propertyPath, selections, paths, joinIds);
+            } else {
+                selections.add(from.get(property.getName()));
+                paths.add(propertyPath.toArray(new String[0]));
+            }
+        }
+    }
+
+    //경로를 따라 중첩 Map에 값을 넣음, 중간 Map은 없으면 만듬
+    @SuppressWarnings("unchecked")
+    private static void put(Map<String, Object> map, String[] path, int index, Object value) {
+        if (index == path.length - 1) {
+            map.put(path[index], value);
+            return;
+        }
+        Object nested = map.get(path[index]);
+        if (nested == null) {
+            nested = new HashMap<String, Object>();
+            map.put(path[index], nested);
+        }
+        put((Map<String, Object>) nested, path, index + 1, value);
+    }
+
+    //경로의 중첩 프로젝션을 null로, 바깥이 이미 null이면 그대로
+    @SuppressWarnings("unchecked")
+    private static void putNull(Map<String, Object> map, String[] path, int index) {
+        if (index == path.length - 1) {
+            map.put(path[index], null);
+            return;
+        }
+        Object nested = map.get(path[index]);
+        if (nested != null) {
+            putNull((Map<String, Object>) nested, path, index + 1);
+        }
+    }
 }
 //운영할때 힘듬, 언제 등록된지 모르면 로그를 뒤져야해서
\ No newline at end of file
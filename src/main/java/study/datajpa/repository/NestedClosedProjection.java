@@ -41,4 +41,8 @@ public interface NestedClosedProjection {
 //프로젝션 대상이 root 엔티티면 유용하다.
 //프로젝션 대상이 root 엔티티를 넘어가면 JPQL SELECT 최적화가 안된다!
 //실무의 복잡한 쿼리를 해결하기에는 한계가 있다.
-//실무에서는 단순할 때만 사용하고, 조금만 복잡해지면 QueryDSL을 사용하자 */
\ No newline at end of file
+//실무에서는 단순할 때만 사용하고, 조금만 복잡해지면 QueryDSL을 사용하자
+
+//findProjectionsByUsername(username, NestedClosedProjection.class)는 MemberRepositoryImpl에서 직접 구현
+//select m.username, t.name from member m left outer join team t on m.teamid=t.teamid where m.username=?
+//팀 엔티티 없이 컬럼 두 개만 읽어서 중첩 프로젝션을 만듬 */
\ No newline at end of file
@@ -0,0 +1,99 @@
+package study.datajpa.repository;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.repository.query.EscapeCharacter;
+import org.springframework.data.jpa.repository.query.JpaQueryMethodFactory;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactoryBean;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.querydsl.EntityPathResolver;
+import org.springframework.data.querydsl.SimpleEntityPathResolver;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.support.RepositoryFactorySupport;
+import org.springframework.data.repository.query.QueryMethod;
+import org.springframework.data.repository.query.ReturnedType;
+
+import javax.persistence.EntityManager;
+
+/**
+ * 리포지토리 프록시가 인터페이스 프로젝션을 만들 때 GeneratedProjectionFactory를 쓰도록 하는 팩토리 빈
+ * DataJpaApplication 의 @EnableJpaRepositories(repositoryFactoryBeanClass = ...)
+ *
+ * 애플리케이션 시작할 때 쿼리 메서드가 만들어지면서 반환 타입 프로젝션을 검사하고 구현 클래스를 미리 만듬
+ * 오픈 프로젝션, 연관 엔티티를 가리키는 중첩 프로젝션은 여기서 예외가 나서 애플리케이션이 뜨지 않음
+ * 동적 프로젝션(Class<T> 파라미터)은 호출할 때 처음 한 번 검사
+ *
+ * 팩토리는 DataJpaApplication 에 등록한 빈 하나를 모든 리포지토리와 MemberRepositoryImpl이 같이 씀
+ * */
+public class ProjectionJpaRepositoryFactoryBean<T extends Repository<S, ID>, S, ID>
+        extends JpaRepositoryFactoryBean<T, S, ID> {
+
+    //부모 필드가 private 이라 팩토리를 직접 만들때 쓰려고 같이 보관
+    private EntityPathResolver entityPathResolver = SimpleEntityPathResolver.INSTANCE;
+    private EscapeCharacter escapeCharacter = EscapeCharacter.DEFAULT;
+    private JpaQueryMethodFactory queryMethodFactory;
+    private ObjectProvider<GeneratedProjectionFactory> projectionFactoryProvider;
+
+    public ProjectionJpaRepositoryFactoryBean(Class<? extends T> repositoryInterface) {
+        super(repositoryInterface);
+    }
+
+    @Override
+    public void setEntityPathResolver(ObjectProvider<EntityPathResolver> resolver) {
+        super.setEntityPathResolver(resolver);
+        this.entityPathResolver = resolver.getIfAvailable(() -> SimpleEntityPathResolver.INSTANCE);
+    }
+
+    @Override
+    public void setEscapeCharacter(char escapeCharacter) {
+        super.setEscapeCharacter(escapeCharacter);
+        this.escapeCharacter = EscapeCharacter.of(escapeCharacter);
+    }
+
+    @Override
+    public void setQueryMethodFactory(JpaQueryMethodFactory factory) {
+        super.setQueryMethodFactory(factory);
+        this.queryMethodFactory = factory;
+    }
+
+    @Autowired
+    public void setProjectionFactory(ObjectProvider<GeneratedProjectionFactory> projectionFactoryProvider) {
+        this.projectionFactoryProvider = projectionFactoryProvider;
+    }
+
+    @Override
+    protected RepositoryFactorySupport createRepositoryFactory(EntityManager entityManager) {
+        GeneratedProjectionFactory shared =
+                projectionFactoryProvider == null ? null : projectionFactoryProvider.getIfAvailable();
+        GeneratedProjectionFactory projectionFactory = shared == null ? new GeneratedProjectionFactory() : shared;
+
+        JpaRepositoryFactory factory = new JpaRepositoryFactory(entityManager) {
+            @Override
+            protected ProjectionFactory getProjectionFactory(ClassLoader classLoader, BeanFactory beanFactory) {
+                //빈이면 컨테이너가 이미 classLoader, beanFactory를 넣어줌
+                if (shared == null) {
+                    projectionFactory.setBeanClassLoader(classLoader);
+                    projectionFactory.setBeanFactory(beanFactory);
+                }
+                return projectionFactory;
+            }
+        };
+        factory.setEntityPathResolver(entityPathResolver);
+        factory.setEscapeCharacter(escapeCharacter);
+        if (queryMethodFactory != null) {
+            factory.setQueryMethodFactory(queryMethodFactory);
+        }
+
+        factory.addQueryCreationListener(query -> {
+            QueryMethod method = query.getQueryMethod();
+            ReturnedType returnedType = method.getResultProcessor().getReturnedType();
+            if (returnedType.isProjecting() && returnedType.getReturnedType().isInterface()) {
+                projectionFactory.validate(returnedType.getReturnedType(), returnedType.getDomainType(),
+                        method.toString());
+            }
+        });
+        return factory;
+    }
+}
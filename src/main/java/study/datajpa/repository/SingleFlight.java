@@ -0,0 +1,82 @@
+package study.datajpa.repository;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 같은 키로 동시에 들어온 호출을 하나로 합침 (single flight)
+ *
+ * 처음 온 스레드(leader)만 loader를 실행하고, 그동안 같은 키로 온 스레드는 기다렸다가 같은 결과(예외)를 받음
+ * 결과를 저장해두는 캐시가 아님, leader 가 끝나면 바로 지우므로 다음 호출은 다시 실행
+ * 결과 객체를 여러 스레드가 같이 쓰므로 불변 값(dto)만 반환해야 함
+ * */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /** 실행 결과와 직접 실행했는지(false면 다른 스레드 결과를 같이 씀) */
+    public static final class Result<V> {
+        private final V value;
+        private final boolean shared;
+
+        Result(V value, boolean shared) {
+            this.value = value;
+            this.shared = shared;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public boolean isShared() {
+            return shared;
+        }
+    }
+
+    public Result<V> execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            return new Result<>(await(existing), true);
+        }
+
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return new Result<>(value, false);
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /** 지금 실행 중인 키 개수 */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    /** 이 키의 결과를 기다리는 스레드 수, 테스트에서 follower 가 다 붙었는지 확인할 때 */
+    int waiting(K key) {
+        CompletableFuture<V> call = inFlight.get(key);
+        return call == null ? 0 : call.getNumberOfDependents();
+    }
+
+    private static <V> V await(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
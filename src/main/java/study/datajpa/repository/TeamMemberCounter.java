@@ -0,0 +1,207 @@
+package study.datajpa.repository;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AutoFlushEvent;
+import org.hibernate.event.spi.AutoFlushEventListener;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.FlushEvent;
+import org.hibernate.event.spi.FlushEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Team.memberCount 를 db에서 더하고 빼는 하이버네이트 이벤트 리스너
+ *
+ * 회원 insert, delete, team 변경 update 가 실행될 때 팀별 증감만 모아두고
+ * flush 가 끝나면 팀마다 update team set member_count = member_count + ? where team_id = ? 한 번
+ * 회원 insert 마다 바로 실행하면 jdbc batch 가 그때마다 끊기므로 flush 끝에 모아서
+ *
+ * 증감은 세션마다 PendingCounts 하나에 모음, 세션의 ActionQueue에 트랜잭션 완료 process로 등록해서
+ * 커밋 직전에 남은 증감을 반영하고 트랜잭션이 끝나면 버림, 세션끼리 같이 잡는 락 없음
+ *
+ * 팀 엔티티를 읽거나 고치지 않으므로 준영속 팀에 회원을 넣어도 반영되고
+ * 팀 version, 2차 캐시도 건드리지 않음, 같은 팀에 동시에 넣어도 충돌 없이 db가 더함
+ * 벌크 쿼리(insert, delete, update member set team_id)는 이벤트가 없으므로 반영 안됨
+ *
+ * hibernate.integrator_provider 로 등록 (TeamMemberCounterConfig)
+ * */
+public class TeamMemberCounter implements Integrator, PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener, FlushEventListener, AutoFlushEventListener {
+
+    //이벤트에서 세션의 PendingCounts를 찾는 용도, 세션은 스레드 하나가 쓰므로 키마다 한 스레드만 넣고 뺌
+    private final transient Map<SessionImplementor, PendingCounts> pending = new ConcurrentHashMap<>();
+
+    private volatile String updateSql;
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                          SessionFactoryServiceRegistry serviceRegistry) {
+        EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        //기본 flush 리스너 다음에 실행, insert/delete 가 다 끝난 뒤
+        registry.appendListeners(EventType.FLUSH, this);
+        registry.appendListeners(EventType.AUTO_FLUSH, this);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            add(event.getSession(), teamOf(event.getPersister(), event.getState()), 1);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            add(event.getSession(), teamOf(event.getPersister(), event.getDeletedState()), -1);
+        }
+    }
+
+    //준영속 회원을 session.update 로 붙이면 이전 상태가 없으므로 팀 변경을 알 수 없음, merge 는 읽어서 비교하므로 됨
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member) || event.getOldState() == null) {
+            return;
+        }
+        Long before = teamOf(event.getPersister(), event.getOldState());
+        Long after = teamOf(event.getPersister(), event.getState());
+        if (before == null ? after != null : !before.equals(after)) {
+            add(event.getSession(), before, -1);
+            add(event.getSession(), after, 1);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    @Override
+    public void onFlush(FlushEvent event) {
+        apply(event.getSession());
+    }
+
+    @Override
+    public void onAutoFlush(AutoFlushEvent event) {
+        apply(event.getSession());
+    }
+
+    private void apply(SessionImplementor session) {
+        PendingCounts counts = pending.get(session);
+        if (counts != null) {
+            counts.apply(session);
+        }
+    }
+
+    private static Long teamOf(EntityPersister persister, Object[] state) {
+        Team team = (Team) state[persister.getEntityMetamodel().getPropertyIndex("team")];
+        //프록시도 id는 초기화 없이 꺼냄
+        return team == null ? null : team.getId();
+    }
+
+    private void add(SessionImplementor session, Long teamId, int delta) {
+        if (teamId == null) {
+            return;
+        }
+        PendingCounts counts = pending.get(session);
+        if (counts == null) {
+            counts = new PendingCounts();
+            pending.put(session, counts);
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) counts);
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) counts);
+        }
+        counts.deltas.merge(teamId, delta, Integer::sum);
+    }
+
+    /**
+     * 세션 하나의 팀 id -> 증감, flush 마다 반영하고 비움
+     * 커밋 직전(before)에 남은 증감을 반영하고, 트랜잭션이 끝나면(after) 세션 목록에서 뺌, 롤백이어도
+     * */
+    private final class PendingCounts implements BeforeTransactionCompletionProcess, AfterTransactionCompletionProcess {
+
+        private final Map<Long, Integer> deltas = new LinkedHashMap<>();
+
+        @Override
+        public void doBeforeTransactionCompletion(SessionImplementor session) {
+            apply(session);
+        }
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor session) {
+            pending.remove(session, this);
+        }
+
+        private void apply(SessionImplementor session) {
+            if (!deltas.isEmpty()) {
+                update(session, deltas);
+                deltas.clear();
+            }
+        }
+    }
+
+    private void update(SessionImplementor session, Map<Long, Integer> deltas) {
+        String sql = updateSql(session.getFactory());
+        JdbcCoordinator jdbc = session.getJdbcCoordinator();
+        for (Map.Entry<Long, Integer> entry : deltas.entrySet()) {
+            if (entry.getValue() == 0) {
+                continue;
+            }
+            PreparedStatement statement = jdbc.getStatementPreparer().prepareStatement(sql);
+            try {
+                statement.setInt(1, entry.getValue());
+                statement.setLong(2, entry.getKey());
+                jdbc.getResultSetReturn().executeUpdate(statement);
+            } catch (SQLException e) {
+                throw session.getJdbcServices().getSqlExceptionHelper()
+                        .convert(e, "could not update member count of team " + entry.getKey(), sql);
+            } finally {
+                jdbc.getLogicalConnection().getResourceRegistry().release(statement);
+                jdbc.afterStatementExecution();
+            }
+        }
+    }
+
+    //테이블, 컬럼 이름은 네이밍 전략이 정하므로 매핑에서 꺼냄
+    private String updateSql(SessionFactoryImplementor sessionFactory) {
+        String sql = updateSql;
+        if (sql == null) {
+            AbstractEntityPersister persister =
+                    (AbstractEntityPersister) sessionFactory.getMetamodel().entityPersister(Team.class);
+            String column = persister.getPropertyColumnNames("memberCount")[0];
+            sql = "update " + persister.getTableName()
+                    + " set " + column + " = " + column + " + ?"
+                    + " where " + persister.getIdentifierColumnNames()[0] + " = ?";
+            updateSql = sql;
+        }
+        return sql;
+    }
+}
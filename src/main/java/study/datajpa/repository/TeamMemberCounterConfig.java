@@ -0,0 +1,23 @@
+package study.datajpa.repository;
+
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * TeamMemberCounter 를 하이버네이트 이벤트 리스너로 등록
+ * 리스너는 세션 팩토리가 만들어질 때 붙어야 하므로 빈이 아닌 integrator 로 넘김
+ * */
+@Configuration
+public class TeamMemberCounterConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer teamMemberCounterCustomizer() {
+        IntegratorProvider provider = () -> List.of(new TeamMemberCounter());
+        return properties -> properties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER, provider);
+    }
+}
@@ -0,0 +1,25 @@
+package study.datajpa.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import study.datajpa.entity.Team;
+
+/**
+ * 컬렉션(members) 페치 조인 + 페이징, TeamRepository에 같이 붙는 사용자 정의 리포지토리
+ *
+ * 컬렉션을 페치 조인하면 팀 하나가 회원 수만큼 row로 늘어나서 sql limit을 걸 수 없음
+ * 그냥 페이징하면 하이버네이트가 경고(HHH000104)만 남기고 모든 팀과 회원을 읽어서 메모리에서 자름
+ * (지금은 fail_on_pagination_over_collection_fetch 설정으로 예외)
+ *
+ * 1단계 팀 id만 limit, offset 으로 페이징
+ * 2단계 그 id의 팀을 회원과 같이 한 번에 조회, 1단계 순서대로 정렬
+ * 정렬은 팀 속성만 가능
+ * */
+public interface TeamPagingRepository {
+
+    /** findTeamFetchJoin + 페이징, 회원이 없는 팀은 빠짐 (inner join) */
+    Page<Team> findTeamFetchJoin(Pageable pageable);
+
+    /** findTeamEntityGraph + 페이징, 회원이 없는 팀도 포함 (left join) */
+    Page<Team> findTeamEntityGraph(Pageable pageable);
+}
@@ -0,0 +1,81 @@
+package study.datajpa.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * TeamPagingRepository 구현
+ *
+ * 2단계 조회는 페이지 크기만큼의 id in 절, 읽는 row는 (페이지의 팀 회원 수)개로 제한됨
+ * 조인 결과는 팀이 회원 수만큼 중복되므로 distinct 대신 id로 모아서 중복을 없앰
+ * */
+public class TeamPagingRepositoryImpl implements TeamPagingRepository {
+
+    private final EntityManager em;
+
+    public TeamPagingRepositoryImpl(EntityManager em) {
+        this.em = em;
+    }
+
+    @Override
+    public Page<Team> findTeamFetchJoin(Pageable pageable) {
+        return page("select t.id from Team t where t.members is not empty",
+                "select count(t) from Team t where t.members is not empty",
+                ids -> em.createQuery("select t from Team t join fetch t.members where t.id in :ids", Team.class)
+                        .setParameter("ids", ids)
+                        .getResultList(),
+                pageable);
+    }
+
+    @Override
+    public Page<Team> findTeamEntityGraph(Pageable pageable) {
+        EntityGraph<Team> graph = em.createEntityGraph(Team.class);
+        graph.addAttributeNodes("members");
+        return page("select t.id from Team t",
+                "select count(t) from Team t",
+                ids -> em.createQuery("select t from Team t where t.id in :ids", Team.class)
+                        .setParameter("ids", ids)
+                        .setHint("javax.persistence.fetchgraph", graph)
+                        .getResultList(),
+                pageable);
+    }
+
+    private Page<Team> page(String idJpql, String countJpql, Function<List<Long>, List<Team>> fetch, Pageable pageable) {
+        //1단계, 팀 id 페이징
+        TypedQuery<Long> idQuery = em.createQuery(QueryUtils.applySorting(idJpql, pageable.getSort(), "t"), Long.class);
+        if (pageable.isPaged()) {
+            idQuery.setFirstResult((int) pageable.getOffset());
+            idQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<Long> ids = idQuery.getResultList();
+
+        //2단계, 팀 + 회원
+        List<Team> content = ids.isEmpty() ? List.of() : inIdOrder(ids, fetch.apply(ids));
+
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> em.createQuery(countJpql, Long.class).getSingleResult());
+    }
+
+    private List<Team> inIdOrder(List<Long> ids, List<Team> teams) {
+        Map<Long, Team> byId = new LinkedHashMap<>();
+        teams.forEach(team -> byId.putIfAbsent(team.getId(), team));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(toList());
+    }
+}
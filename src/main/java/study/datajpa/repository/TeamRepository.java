@@ -3,8 +3,11 @@ package study.datajpa.repository;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import study.datajpa.entity.Team;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 
 /**
@@ -20,12 +23,28 @@ import java.util.List;
  *
  * 스프링 데이터 JPA 를 쓸 때 모두 @Transactional 걸려잇음
  */
-public interface TeamRepository extends JpaRepository<Team, Long> {
+public interface TeamRepository extends JpaRepository<Team, Long>, TeamPagingRepository {
 
+    /**
+     * 쿼리 캐시, 결과 팀 id 목록을 team-query region에 저장하고 팀 엔티티는 2차 캐시에서 꺼냄
+     * team 테이블에 insert, update, delete가 일어나면 하이버네이트가 이 결과를 자동으로 무효화
+     * */
+    @Override
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "team-query")})
+    List<Team> findAll();
+
+    //2차 캐시를 거치지 않고 db의 회원 수, 캐시의 팀은 memberCount 가 늦을 수 있음
+    @Query("select t.memberCount from Team t where t.id = :teamId")
+    Integer findMemberCount(@Param("teamId") Long teamId);
+
+    //페이징은 TeamPagingRepository.findTeamFetchJoin(pageable), 여기에 pageable을 넘기면 메모리에서 페이징
 //    @Query("select t from Team t join fetch t.members")
     @Query("select distinct t from Team t join fetch t.members")
     List<Team> findTeamFetchJoin();
 
+    //페이징은 TeamPagingRepository.findTeamEntityGraph(pageable)
     @EntityGraph(attributePaths = {"members"})
 //    @Query("select t from Team t")
     @Query("select distinct t from Team t")
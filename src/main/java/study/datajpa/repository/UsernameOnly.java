@@ -1,7 +1,5 @@
 package study.datajpa.repository;
 
-import org.springframework.beans.factory.annotation.Value;
-
 /**
  * Projections
  * 회원 이름만 가져오는
@@ -16,9 +14,12 @@ public interface UsernameOnly {
      * 단! 이렇게 SpEL문법을 사용하면, DB에서 엔티티 필드를 다 조회해온 다음에 계산한다!
      * 따라서 JPQL SELECT 절 최적화가 안된다.
      * member데이터 다 가져와 spl계산, 결과 나온거에서 원하는 데이터 찍어서
-     * 다 가져와서 처리해서 오픈 프로젝션 */
+     * 다 가져와서 처리해서 오픈 프로젝션
+     *
+     * 엔티티 전체를 조회하는 오픈 프로젝션은 GeneratedProjectionFactory가 시작할 때 막으므로 주석처리
+     * 지금은 username만 select 하는 닫힌 프로젝션 */
 
-    @Value("#{target.username + ' ' + target.age + ' ' + target.team.name}")
+//    @Value("#{target.username + ' ' + target.age + ' ' + target.team.name}")
     /** 프로퍼티명 */
     String getUsername();
 }
@@ -0,0 +1,120 @@
+package study.datajpa.transaction;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.StaleStateException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.OptimisticLockException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * 낙관적 락 충돌(@Version)이 나면 트랜잭션을 처음부터 다시 실행
+ *
+ * PESSIMISTIC_WRITE(findLockByUsername)는 select 할 때부터 row 락을 잡으므로 같은 회원 수정이 줄을 서서 기다림
+ * 낙관적 락은 락 없이 읽고 커밋(flush)할 때 version으로 확인, 충돌이 드물면 기다리는 시간이 없음
+ * 충돌하면 OptimisticLockException -> 새 트랜잭션에서 다시 읽고 다시 수정
+ *
+ * 시도마다 새 트랜잭션(REQUIRES_NEW), 영속성 컨텍스트도 새로 만들어야 최신 version을 읽음
+ * 그래서 action 안에서 엔티티를 다시 조회해야 함, 밖에서 읽은 엔티티를 넘기면 계속 충돌
+ * 다시 시도 전에 기다리는 시간은 0 ~ min(maxBackoff, initialBackoff * 2^(시도-1)) 사이 랜덤(full jitter)
+ * 동시에 충돌한 트랜잭션들이 같은 시간에 다시 부딪히지 않게
+ * maxAttempts번 모두 실패하면 마지막 예외를 그대로 던짐
+ *
+ * optimisticRetryTemplate.execute(status -> {
+ *     Member member = memberRepository.findById(id).get();
+ *     member.setAge(member.getAge() + 1);
+ *     return member;
+ * });
+ * */
+@Slf4j
+@Component
+public class OptimisticRetryTemplate {
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public OptimisticRetryTemplate(PlatformTransactionManager transactionManager,
+                                   @Value("${datajpa.retry.max-attempts:5}") int maxAttempts,
+                                   @Value("${datajpa.retry.initial-backoff:10ms}") Duration initialBackoff,
+                                   @Value("${datajpa.retry.max-backoff:200ms}") Duration maxBackoff) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+    }
+
+    public <T> T execute(TransactionCallback<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(action);
+            } catch (RuntimeException e) {
+                if (!isOptimisticLockFailure(e) || attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.debug("optimistic lock conflict, retry {}/{}: {}", attempt, maxAttempts, e.getMessage());
+                if (!backoff(attempt)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public void executeWithoutResult(Consumer<TransactionStatus> action) {
+        execute(status -> {
+            action.accept(status);
+            return null;
+        });
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * 커밋할 때 충돌하면 JpaTransactionManager가 ObjectOptimisticLockingFailureException으로 바꿔서 던짐
+     * 트랜잭션 안에서 직접 flush 하면 OptimisticLockException 이 그대로 올라올 수 있으므로 원인까지 확인
+     * */
+    static boolean isOptimisticLockFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockingFailureException
+                    || t instanceof OptimisticLockException
+                    || t instanceof StaleStateException) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    //인터럽트되면 더 시도하지 않음
+    private boolean backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        if (ceiling <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+            return true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package study.datajpa.transaction;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 조회만 하는 컨트롤러 메서드, 요청 동안 OSIV 영속성 컨텍스트를 읽기 전용으로 (ReadOnlyRequestInterceptor)
+ *
+ * 세션 기본값 read-only, FlushMode.MANUAL
+ * 엔티티를 읽어도 변경 감지용 스냅샷을 만들지 않고, 쿼리 전에 자동 flush 하지 않음
+ * 메서드 안 트랜잭션뿐 아니라 트랜잭션 밖 조회, 파라미터 바인딩(도메인 클래스 컨버터), 지연 로딩까지 요청 전체에 적용
+ *
+ * 보장하는 것은 요청 영속성 컨텍스트의 read-only, flush 안함 뿐, 커넥션을 반납하지는 않음
+ * OSIV 영속성 컨텍스트는 트랜잭션 밖에서 한 번이라도 조회하면(findVersionById, 도메인 클래스 컨버터 등) 그 커넥션을 요청 끝까지 잡음
+ * 복제본 라우팅도 이 어노테이션이 아니라 커넥션을 새로 얻을 때마다 정해짐
+ * 읽기 전용 트랜잭션, readOnly 힌트가 붙은 리포지토리 호출 단위 (ReplicaRoutingDataSource)
+ *
+ * @Transactional(readOnly = true)를 컨트롤러에 붙이는 것과 다른 점
+ * 트랜잭션 밖에서 일어나는 파라미터 바인딩(도메인 클래스 컨버터), 지연 로딩도 읽기 전용
+ * 요청 전체를 트랜잭션 하나로 묶지 않으므로 그 안의 읽기 전용 트랜잭션, 힌트 호출마다 복제본을 고를 수 있음
+ *
+ * 주의, 이 요청에서 조회한 엔티티는 수정해도 update가 나가지 않음, 수정하는 메서드에는 붙이면 안됨
+ * */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReadOnlyRequest {
+}
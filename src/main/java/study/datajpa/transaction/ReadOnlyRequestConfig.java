@@ -0,0 +1,27 @@
+package study.datajpa.transaction;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * ReadOnlyRequestInterceptor 등록
+ * OSIV 인터셉터(기본 순서 0)보다 늦게 preHandle, 먼저 afterCompletion
+ * */
+@Configuration
+public class ReadOnlyRequestConfig implements WebMvcConfigurer {
+
+    private final EntityManagerFactory emf;
+
+    public ReadOnlyRequestConfig(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ReadOnlyRequestInterceptor(emf)).order(Ordered.LOWEST_PRECEDENCE);
+    }
+}
@@ -0,0 +1,58 @@
+package study.datajpa.transaction;
+
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * @ReadOnlyRequest 가 붙은 핸들러면 요청 동안 OSIV 영속성 컨텍스트를 읽기 전용으로
+ *
+ * OSIV 인터셉터가 영속성 컨텍스트를 스레드에 묶은 다음에 실행되어야 하므로 순서를 뒤로 (ReadOnlyRequestConfig)
+ * preHandle은 파라미터 바인딩 전이므로 도메인 클래스 컨버터의 조회도 포함됨
+ * open-in-view: false 면 요청에 묶인 영속성 컨텍스트가 없으므로 아무것도 하지 않음
+ * */
+public class ReadOnlyRequestInterceptor implements HandlerInterceptor {
+
+    private static final String SCOPE_ATTRIBUTE = ReadOnlyRequestInterceptor.class.getName() + ".SCOPE";
+
+    private final EntityManagerFactory emf;
+
+    public ReadOnlyRequestInterceptor(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!isReadOnly(handler)) {
+            return true;
+        }
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(emf);
+        if (holder != null) {
+            request.setAttribute(SCOPE_ATTRIBUTE, ReadOnlySessionScope.open(holder.getEntityManager()));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object scope = request.getAttribute(SCOPE_ATTRIBUTE);
+        if (scope != null) {
+            request.removeAttribute(SCOPE_ATTRIBUTE);
+            ((ReadOnlySessionScope) scope).close();
+        }
+    }
+
+    static boolean isReadOnly(Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return false;
+        }
+        HandlerMethod method = (HandlerMethod) handler;
+        return method.hasMethodAnnotation(ReadOnlyRequest.class)
+                || method.getBeanType().isAnnotationPresent(ReadOnlyRequest.class);
+    }
+}
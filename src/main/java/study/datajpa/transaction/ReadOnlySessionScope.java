@@ -0,0 +1,41 @@
+package study.datajpa.transaction;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+
+/**
+ * 세션을 읽기 전용(기본 read-only, FlushMode.MANUAL)으로 바꾸고 close()에서 이전 상태로 되돌림
+ *
+ * 스프링의 읽기 전용 트랜잭션도 같은 설정을 하지만 트랜잭션 안에서만
+ * 게다가 setDefaultReadOnly(true)는 트랜잭션이 끝나도 되돌리지 않으므로 여기서 원래 값으로 되돌림
+ * */
+public class ReadOnlySessionScope implements AutoCloseable {
+
+    private final Session session;
+    private final FlushMode previousFlushMode;
+    private final boolean previousDefaultReadOnly;
+
+    private ReadOnlySessionScope(Session session) {
+        this.session = session;
+        this.previousFlushMode = session.getHibernateFlushMode();
+        this.previousDefaultReadOnly = session.isDefaultReadOnly();
+    }
+
+    public static ReadOnlySessionScope open(EntityManager em) {
+        ReadOnlySessionScope scope = new ReadOnlySessionScope(em.unwrap(Session.class));
+        scope.session.setDefaultReadOnly(true);
+        scope.session.setHibernateFlushMode(FlushMode.MANUAL);
+        return scope;
+    }
+
+    @Override
+    public void close() {
+        if (!session.isOpen()) {
+            return;
+        }
+        session.setHibernateFlushMode(previousFlushMode);
+        session.setDefaultReadOnly(previousDefaultReadOnly);
+    }
+}
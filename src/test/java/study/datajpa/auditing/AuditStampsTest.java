@@ -0,0 +1,112 @@
+package study.datajpa.auditing;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+public class AuditStampsTest {
+
+    @Autowired
+    AuditStamps auditStamps;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void sameTransactionSharesStamp() {
+        //when
+        Member m1 = memberRepository.save(new Member("audit1", 10));
+        Member m2 = memberRepository.save(new Member("audit2", 20));
+        em.flush();
+
+        //then
+        //트랜잭션 하나에서 등록자, 시간을 한 번만 구함
+        assertThat(m1.getCreatedBy()).isNotNull().isEqualTo(m2.getCreatedBy());
+        assertThat(m1.getCreatedDate()).isNotNull().isEqualTo(m2.getCreatedDate());
+        assertThat(m1.getLastModifiedBy()).isEqualTo(m1.getCreatedBy());
+    }
+
+    @Test
+    public void requiresNewGetsOwnStamp() {
+        //given
+        AuditStamp outer = auditStamps.current();
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        //when
+        AuditStamp inner = requiresNew.execute(status -> auditStamps.current());
+
+        //then
+        //새 트랜잭션은 자기 값, 끝나면 바깥 트랜잭션 값이 그대로
+        assertThat(inner.getAuditor()).isNotEqualTo(outer.getAuditor());
+        assertThat(auditStamps.current()).isSameAs(outer);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void outsideTransactionIsFresh() {
+        assertThat(auditStamps.current().getAuditor()).isNotEqualTo(auditStamps.current().getAuditor());
+    }
+
+    @Test
+    public void bulkChunkSharesStamp() {
+        //given
+        List<Member> members = IntStream.range(0, 5)
+                .mapToObj(i -> new Member("auditBulk" + i, 30))
+                .collect(Collectors.toList());
+
+        //when
+        //2명씩 청크 3개
+        memberRepository.saveAllBatched(members, 2);
+        List<Member> saved = em.createQuery(
+                        "select m from Member m where m.username like 'auditBulk%' order by m.id", Member.class)
+                .getResultList();
+
+        //then
+        assertThat(saved).hasSize(5);
+        assertThat(saved).extracting(Member::getCreatedBy).containsOnly(saved.get(0).getCreatedBy());
+        assertThat(saved.get(1).getCreatedDate()).isEqualTo(saved.get(0).getCreatedDate());
+        assertThat(saved.get(3).getCreatedDate()).isEqualTo(saved.get(2).getCreatedDate());
+        assertThat(saved.get(2).getCreatedDate()).isAfterOrEqualTo(saved.get(1).getCreatedDate());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void bulkScopeOutsideTransaction() {
+        //when
+        AuditStamp first;
+        AuditStamp second;
+        try (AuditStamps.BulkScope bulk = auditStamps.bulk()) {
+            first = auditStamps.current();
+            second = auditStamps.current();
+        }
+
+        //then
+        //트랜잭션 밖에서도 벌크 범위 안은 같은 값, 닫으면 다시 매번 새로
+        assertThat(second).isSameAs(first);
+        assertThat(auditStamps.current()).isNotSameAs(first);
+    }
+}
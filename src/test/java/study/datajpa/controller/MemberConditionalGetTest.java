@@ -0,0 +1,121 @@
+package study.datajpa.controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.monitoring.QueryCountExtension;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.datajpa.monitoring.QueryCountExtension.assertSelectCount;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+@ExtendWith(QueryCountExtension.class)
+public class MemberConditionalGetTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void memberNotModified() throws Exception {
+        //given
+        Member member = memberRepository.save(new Member("etag1", 10));
+        em.flush();
+        String etag = mockMvc.perform(get("/members/{id}", member.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().string("etag1"))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        //when then
+        //바뀐게 없으면 304, 바디 없음
+        mockMvc.perform(get("/members/{id}", member.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        //수정하면 version이 올라가서 다시 200
+        member.setAge(11);
+        em.flush();
+        String changed = mockMvc.perform(get("/members/{id}", member.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(changed).isNotEqualTo(etag);
+    }
+
+    @Test
+    public void missingMember() throws Exception {
+        mockMvc.perform(get("/members/{id}", -1L))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void pageNotModifiedUntilMemberInPageChanges() throws Exception {
+        //given
+        //id 역순 2개씩이면 첫 페이지(page=1, one-indexed-parameters)는 etagPage2, etagPage1
+        Member other = memberRepository.save(new Member("etagPage0", 5));
+        memberRepository.save(new Member("etagPage1", 10));
+        Member member = memberRepository.save(new Member("etagPage2", 20));
+        em.flush();
+        QueryCountExtension.reset();
+
+        //If-None-Match가 없으면 버전 확인 쿼리 없이 내용 + count 만
+        String etag = mockMvc.perform(firstPage())
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+        assertSelectCount(2);
+
+        //when then
+        mockMvc.perform(firstPage().header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        //다른 페이지는 다른 ETag
+        mockMvc.perform(get("/members").param("page", "2").param("size", "2").param("sort", "id,desc")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        //다른 페이지의 회원이 바뀌어도 이 페이지는 그대로
+        other.setAge(6);
+        em.flush();
+        mockMvc.perform(firstPage().header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        //벌크 수정도 version을 올리므로 바뀐 걸 알 수 있음
+        memberRepository.bulkAgePlus(20);
+        String afterBulk = mockMvc.perform(firstPage().header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(afterBulk).isNotEqualTo(etag);
+
+        //삭제
+        memberRepository.deleteById(member.getId());
+        em.flush();
+        mockMvc.perform(firstPage().header(HttpHeaders.IF_NONE_MATCH, afterBulk))
+                .andExpect(status().isOk());
+    }
+
+    private static MockHttpServletRequestBuilder firstPage() {
+        return get("/members").param("page", "1").param("size", "2").param("sort", "id,desc");
+    }
+}
@@ -0,0 +1,138 @@
+package study.datajpa.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.CountMode;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//StreamingResponseBody는 다른 스레드에서 조회하므로 데이터를 커밋하고 끝나면 지움
+@SpringBootTest
+@AutoConfigureMockMvc
+public class MemberPageStreamTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    TeamRepository teamRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @AfterEach
+    public void cleanUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'stream%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name = 'streamTeam'").executeUpdate();
+        });
+    }
+
+    @Test
+    public void streamMatchesPagedList() throws Exception {
+        //given
+        Team team = teamRepository.save(new Team("streamTeam"));
+        memberRepository.saveAllBatched(IntStream.range(0, 7)
+                .mapToObj(i -> new Member("stream" + i, i, i % 2 == 0 ? team : null))
+                .collect(Collectors.toList()), 100);
+
+        //when
+        JsonNode paged = objectMapper.readTree(mockMvc.perform(get("/members").param("page", "2").param("size", "3")
+                        .param("sort", "id"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        MvcResult async = mockMvc.perform(get("/members/stream").param("page", "2").param("size", "3")
+                        .param("sort", "id"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        async.getAsyncResult();
+        JsonNode streamed = objectMapper.readTree(mockMvc.perform(asyncDispatch(async))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+
+        //then
+        //one-indexed-parameters 라 page=2는 두 번째 페이지
+        assertThat(ids(streamed.get("content"))).isEqualTo(ids(paged.get("content")));
+        assertThat(streamed.get("page").get("number").asInt()).isEqualTo(1);
+        assertThat(streamed.get("page").get("size").asInt()).isEqualTo(3);
+        assertThat(streamed.get("page").get("totalElements").asLong())
+                .isEqualTo(paged.get("totalElements").asLong());
+        assertThat(streamed.get("page").get("totalPages").asLong())
+                .isEqualTo(paged.get("totalPages").asLong());
+        //pageable, sort 같은 메타데이터는 없음
+        assertThat(streamed.has("pageable")).isFalse();
+    }
+
+    @Test
+    public void rowsAreWrittenBeforePageIsRead() throws Exception {
+        //given
+        int size = 2000;
+        memberRepository.saveAllBatched(IntStream.range(0, size)
+                .mapToObj(i -> new Member("streamBig" + i, 10))
+                .collect(Collectors.toList()), 500);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MemberPageWriter writer = new MemberPageWriter(objectMapper.getFactory().createGenerator(out));
+        AtomicInteger read = new AtomicInteger();
+        List<Integer> bytesWhileReading = new ArrayList<>();
+
+        //when
+        writer.start();
+        long total = memberRepository.scrollPage(PageRequest.of(0, size, Sort.by("id")), CountMode.EXACT, member -> {
+            writer.write(member);
+            if (read.incrementAndGet() % 500 == 0) {
+                bytesWhileReading.add(out.size());
+            }
+        });
+        writer.finish(PageRequest.of(0, size), total);
+
+        //then
+        //페이지를 다 읽기 전에 이미 응답으로 나간 바이트가 있음, 잭슨 버퍼(8KB)가 찰 때마다 씀
+        assertThat(read.get()).isEqualTo(size);
+        assertThat(bytesWhileReading.get(0)).isPositive();
+        assertThat(bytesWhileReading).isSorted();
+        assertThat(objectMapper.readTree(out.toByteArray()).get("content")).hasSize(size);
+    }
+
+    private List<Long> ids(JsonNode content) {
+        List<Long> ids = new ArrayList<>();
+        content.forEach(node -> ids.add(node.get("id").asLong()));
+        return ids;
+    }
+}
@@ -0,0 +1,115 @@
+package study.datajpa.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 읽기 전용 요청은 복제본으로
+ *
+ * 복제본은 내장 H2 두 개, 실제 복제는 없으므로 주 db에만 있는 데이터, 복제본에만 있는 데이터로 어디로 갔는지 확인
+ * */
+@SpringBootTest(properties = {
+        "datajpa.datasource.replica.enabled=true",
+        "datajpa.datasource.replica.urls[0]=jdbc:h2:mem:routing-replica0;DB_CLOSE_DELAY=-1",
+        "datajpa.datasource.replica.urls[1]=jdbc:h2:mem:routing-replica1;DB_CLOSE_DELAY=-1",
+        "datajpa.datasource.replica.selection=round-robin"})
+public class ReplicaRoutingTest {
+
+    @Autowired
+    ReplicaRoutingDataSource routing;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void readOnlyTransactionGoesToReplicas() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+
+        //when
+        String first = readOnlyTx.execute(status -> connectionUrl());
+        String second = readOnlyTx.execute(status -> connectionUrl());
+        String write = tx.execute(status -> connectionUrl());
+
+        //then
+        //차례대로 두 복제본
+        assertThat(List.of(first, second)).containsExactlyInAnyOrder(
+                "jdbc:h2:mem:routing-replica0", "jdbc:h2:mem:routing-replica1");
+        assertThat(write).doesNotContain("routing-replica");
+    }
+
+    @Test
+    public void readOnlyHintGoesToReplicasOutsideTransaction() {
+        //given
+        //복제본에 주 db 스키마를 만들고 복제본에만 회원을 넣음
+        JdbcTemplate primary = new JdbcTemplate(routing.getPrimary());
+        List<String> ddl = primary.queryForList("script nodata", String.class);
+        for (HikariDataSource replica : routing.getReplicas()) {
+            JdbcTemplate jdbc = new JdbcTemplate(replica);
+            jdbc.execute("drop all objects");
+            ddl.forEach(jdbc::execute);
+            jdbc.update("insert into member (member_id, username, age) values (1, 'replicaOnly', 10)");
+        }
+
+        //when
+        Member fromReplica = memberRepository.findReadOnlyByUsername("replicaOnly");
+        List<Member> fromPrimary = memberRepository.findByUsername("replicaOnly");
+
+        //then
+        assertThat(fromReplica).isNotNull();
+        assertThat(fromReplica.getAge()).isEqualTo(10);
+        assertThat(fromPrimary).isEmpty();
+    }
+
+    @Test
+    public void leastConnectionsSkipsBusyReplica() throws Exception {
+        //given
+        HikariDataSource replica0 = replica("least-replica0");
+        HikariDataSource replica1 = replica("least-replica1");
+        AtomicInteger counter = new AtomicInteger();
+
+        try (replica0; replica1; Connection busy = replica0.getConnection()) {
+            //when
+            int selected1 = ReplicaSelection.LEAST_CONNECTIONS.select(List.of(replica0, replica1), counter);
+            int selected2 = ReplicaSelection.LEAST_CONNECTIONS.select(List.of(replica0, replica1), counter);
+
+            //then
+            assertThat(selected1).isEqualTo(1);
+            assertThat(selected2).isEqualTo(1);
+        }
+    }
+
+    private String connectionUrl() {
+        return em.unwrap(Session.class).doReturningWork(connection -> connection.getMetaData().getURL());
+    }
+
+    private static HikariDataSource replica(String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        return dataSource;
+    }
+}
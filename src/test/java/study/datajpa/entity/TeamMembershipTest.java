@@ -0,0 +1,226 @@
+package study.datajpa.entity;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.monitoring.QueryCountExtension;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.datajpa.monitoring.QueryCountExtension.assertSelectCount;
+
+@SpringBootTest
+@Transactional
+@ExtendWith(QueryCountExtension.class)
+public class TeamMembershipTest {
+
+    private static final int MEMBERS = 50;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    TeamRepository teamRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void joinDoesNotLoadMembers() {
+        //given
+        Long teamId = teamWithMembers("joinTeam").getId();
+        em.flush();
+        em.clear();
+        QueryCountExtension.reset();
+
+        //when
+        Team team = em.getReference(Team.class, teamId);
+        Member member = new Member("joinNew", 10, team);
+        em.persist(member);
+
+        //then
+        //팀 row 한 번, 회원 목록은 읽지 않음
+        assertSelectCount(1);
+        assertThat(Hibernate.isInitialized(team.getMembers())).isFalse();
+        assertThat(team.getMemberCount()).isEqualTo(MEMBERS + 1);
+
+        //나중에 초기화하면 db에서 읽은 회원 + 쌓아둔 회원
+        em.flush();
+        assertThat(team.getMembers()).hasSize(MEMBERS + 1).contains(member);
+    }
+
+    @Test
+    public void sizeWithoutLoading() {
+        //given
+        Long teamId = teamWithMembers("sizeTeam").getId();
+        em.flush();
+        em.clear();
+
+        //when
+        Team team = em.find(Team.class, teamId);
+        QueryCountExtension.reset();
+        int size = team.getMembers().size();
+
+        //then
+        //extra lazy 라 count 쿼리 한 번
+        assertThat(size).isEqualTo(MEMBERS);
+        assertSelectCount(1);
+        assertThat(Hibernate.isInitialized(team.getMembers())).isFalse();
+    }
+
+    @Test
+    public void changeTeamMovesCount() {
+        //given
+        Team teamA = teamWithMembers("moveA");
+        Team teamB = new Team("moveB");
+        em.persist(teamB);
+        Member member = teamA.getMembers().get(0);
+
+        //when
+        member.changeTeam(teamB);
+        member.changeTeam(teamB);
+
+        //then
+        assertThat(teamA.getMembers()).hasSize(MEMBERS - 1).doesNotContain(member);
+        assertThat(teamB.getMembers()).containsExactly(member);
+        assertCountsMatchDatabase(teamA.getId(), teamB.getId());
+    }
+
+    @Test
+    public void removeDecrementsCount() {
+        //given
+        Long teamId = teamWithMembers("removeTeam").getId();
+        em.flush();
+        em.clear();
+        Member member = em.createQuery("select m from Member m where m.username = :username", Member.class)
+                .setParameter("username", "removeTeam_0")
+                .getSingleResult();
+
+        //when
+        em.remove(member);
+
+        //then
+        assertThat(Hibernate.isInitialized(member.getTeam().getMembers())).isFalse();
+        assertThat(member.getTeam().getMemberCount()).isEqualTo(MEMBERS - 1);
+        assertCountsMatchDatabase(teamId);
+    }
+
+    @Test
+    public void leaveTeamWithNull() {
+        //given
+        Team team = teamWithMembers("leaveTeam");
+        Member member = team.getMembers().get(0);
+
+        //when
+        member.changeTeam(null);
+
+        //then
+        assertThat(member.getTeam()).isNull();
+        assertThat(team.getMembers()).hasSize(MEMBERS - 1).doesNotContain(member);
+        assertThat(team.getMemberCount()).isEqualTo(MEMBERS - 1);
+        assertCountsMatchDatabase(team.getId());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void joinDetachedTeam() {
+        //given
+        //이전 트랜잭션에서 저장한 팀, 여기서는 준영속
+        Team team = teamRepository.save(new Team("detachedTeam"));
+        try {
+            //when
+            memberRepository.save(new Member("detached1", 10, team));
+            memberRepository.save(new Member("detached2", 20, team));
+
+            //then
+            assertThat(teamRepository.findMemberCount(team.getId())).isEqualTo(2);
+        } finally {
+            cleanUp("detached", "detachedTeam");
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void concurrentJoinsAreAllCounted() throws Exception {
+        //given
+        Team team = teamRepository.save(new Team("concurrentTeam"));
+        Long version = teamRepository.findById(team.getId()).orElseThrow().getVersion();
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            //when
+            //팀 row 를 엔티티로 고치지 않으므로 OptimisticLockException 없음
+            List<Future<Member>> futures = IntStream.range(0, callers)
+                    .mapToObj(i -> executor.submit(() -> {
+                        start.await();
+                        return memberRepository.save(new Member("concurrent" + i, i, team));
+                    }))
+                    .collect(Collectors.toList());
+            start.countDown();
+            for (Future<Member> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+
+            //then
+            assertThat(teamRepository.findMemberCount(team.getId())).isEqualTo(callers);
+            assertThat(teamRepository.findById(team.getId()).orElseThrow().getVersion()).isEqualTo(version);
+        } finally {
+            executor.shutdownNow();
+            cleanUp("concurrent", "concurrentTeam");
+        }
+    }
+
+    private Team teamWithMembers(String name) {
+        Team team = new Team(name);
+        em.persist(team);
+        for (int i = 0; i < MEMBERS; i++) {
+            em.persist(new Member(name + "_" + i, i, team));
+        }
+        return team;
+    }
+
+    //커밋한 데이터는 직접 지움
+    private void cleanUp(String usernamePrefix, String teamName) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like :prefix")
+                    .setParameter("prefix", usernamePrefix + "%")
+                    .executeUpdate();
+            em.createQuery("delete from Team t where t.name = :name")
+                    .setParameter("name", teamName)
+                    .executeUpdate();
+        });
+    }
+
+    private void assertCountsMatchDatabase(Long... teamIds) {
+        em.flush();
+        em.clear();
+        for (Long teamId : teamIds) {
+            Long actual = em.createQuery("select count(m) from Member m where m.team.id = :teamId", Long.class)
+                    .setParameter("teamId", teamId)
+                    .getSingleResult();
+            assertThat(teamRepository.findMemberCount(teamId)).isEqualTo(actual.intValue());
+        }
+    }
+}
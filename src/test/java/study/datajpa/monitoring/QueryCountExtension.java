@@ -0,0 +1,62 @@
+package study.datajpa.monitoring;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 테스트 메서드마다 실행된 SQL 개수를 세는 JUnit5 확장
+ *
+ * @ExtendWith(QueryCountExtension.class) 붙이고
+ * given 에서 데이터 넣고 em.flush(), em.clear() 한 뒤 reset()
+ * when 실행 후 assertSelectCount(1) 처럼 검증
+ * */
+public class QueryCountExtension implements BeforeEachCallback, AfterEachCallback {
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        QueryLog.start();
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        QueryLog.stop();
+    }
+
+    /** 지금까지 센 개수를 버리고 다시 셈 */
+    public static void reset() {
+        QueryLog.start();
+    }
+
+    public static void assertSelectCount(int expected) {
+        assertThat(log().getSelectCount()).as("select count").isEqualTo(expected);
+    }
+
+    public static void assertInsertCount(int expected) {
+        assertThat(log().getInsertCount()).as("insert count").isEqualTo(expected);
+    }
+
+    public static void assertUpdateCount(int expected) {
+        assertThat(log().getUpdateCount()).as("update count").isEqualTo(expected);
+    }
+
+    public static void assertDeleteCount(int expected) {
+        assertThat(log().getDeleteCount()).as("delete count").isEqualTo(expected);
+    }
+
+    /** 같은 select가 두 번 이상 나가지 않았는지, 지연 로딩 N+1 */
+    public static void assertNoRepeatedSelects() {
+        Map<String, Integer> repeated = log().repeatedSelects(2);
+        assertThat(repeated).as("repeated selects (N+1)").isEmpty();
+    }
+
+    public static QueryLog log() {
+        QueryLog log = QueryLog.current();
+        assertThat(log).as("QueryCountExtension 이 등록되지 않음").isNotNull();
+        return log;
+    }
+}
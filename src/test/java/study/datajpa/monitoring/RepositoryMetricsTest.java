@@ -0,0 +1,98 @@
+package study.datajpa.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//리포지토리 메서드별 실행 시간, SQL 개수, row 수 메트릭
+@SpringBootTest
+@Transactional
+public class RepositoryMetricsTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    TeamRepository teamRepository;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void derivedQueryAndCustomMethod() {
+        //given
+        Team team = teamRepository.save(new Team("metricsTeam"));
+        memberRepository.save(new Member("metrics1", 10, team));
+        memberRepository.save(new Member("metrics2", 20, team));
+        em.flush();
+        em.clear();
+        double statementsBefore = total(statements("MemberRepository", "findByUsernameAndAgeGreaterThan"));
+        double rowsBefore = total(rows("MemberRepository", "findByUsernameAndAgeGreaterThan"));
+
+        //when
+        memberRepository.findByUsernameAndAgeGreaterThan("metrics2", 15);
+        memberRepository.findMemberCustom();
+
+        //then
+        //메서드 이름 쿼리, select 한 번에 한 명
+        assertThat(total(statements("MemberRepository", "findByUsernameAndAgeGreaterThan")) - statementsBefore)
+                .isEqualTo(1);
+        assertThat(total(rows("MemberRepository", "findByUsernameAndAgeGreaterThan")) - rowsBefore)
+                .isEqualTo(1);
+
+        //MemberRepositoryImpl 사용자 정의 메서드도 같은 프록시를 거침
+        assertThat(statements("MemberRepository", "findMemberCustom")).isNotNull();
+        Timer timer = registry.find("spring.data.repository.invocations")
+                .tag("repository", "MemberRepository")
+                .tag("method", "findMemberCustom")
+                .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isPositive();
+    }
+
+    @Test
+    public void bulkUpdateRecordsAffectedRows() {
+        //given
+        memberRepository.save(new Member("bulkMetrics1", 30));
+        memberRepository.save(new Member("bulkMetrics2", 40));
+        long affected = memberRepository.findAll().stream().filter(m -> m.getAge() >= 30).count();
+        double rowsBefore = total(rows("MemberRepository", "bulkAgePlus"));
+
+        //when
+        int result = memberRepository.bulkAgePlus(30);
+
+        //then
+        assertThat(result).isEqualTo(affected);
+        assertThat(total(rows("MemberRepository", "bulkAgePlus")) - rowsBefore).isEqualTo(affected);
+    }
+
+    private DistributionSummary statements(String repository, String method) {
+        return registry.find("spring.data.repository.statements")
+                .tag("repository", repository).tag("method", method).summary();
+    }
+
+    private DistributionSummary rows(String repository, String method) {
+        return registry.find("spring.data.repository.rows")
+                .tag("repository", repository).tag("method", method).summary();
+    }
+
+    private static double total(DistributionSummary summary) {
+        return summary == null ? 0 : summary.totalAmount();
+    }
+}
@@ -0,0 +1,130 @@
+package study.datajpa.monitoring;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+public class SqlSamplerTest {
+
+    @Autowired
+    SqlSampler sqlSampler;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Test
+    public void listenerSeesEveryStatement() {
+        //given
+        long before = sqlSampler.getObservedCount();
+
+        //when
+        memberRepository.saveAndFlush(new Member("sampler1", 10));
+        memberRepository.findByUsername("sampler1");
+
+        //then
+        //시퀀스, insert, select, 기록은 샘플 비율만큼만
+        assertThat(sqlSampler.getObservedCount() - before).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    public void slowStatementKeepsParametersAndStack() throws Exception {
+        //given
+        SqlSampler sampler = new SqlSampler(0, Duration.ofMillis(50), 4, 8);
+        QueryInfo query = new QueryInfo("select * from member where member_id = ? and username = ? and team_id = ?");
+        query.getParametersList().add(List.of(
+                parameter("setString", 2, "slow"),
+                parameter("setLong", 1, 7L),
+                parameter("setNull", 3, Types.BIGINT)));
+
+        //when
+        sampler.afterQuery(execution(100), List.of(query));
+        sampler.afterQuery(execution(10), List.of(query));
+
+        //then
+        //50ms 미만은 sampleRate 0 이라 남지 않음
+        assertThat(sampler.getObservedCount()).isEqualTo(2);
+        assertThat(sampler.getSampled()).isEmpty();
+        assertThat(sampler.getSlow()).hasSize(1);
+        SqlSample slow = sampler.getSlow().get(0);
+        assertThat(slow.getElapsedMillis()).isEqualTo(100);
+        //? 순서대로
+        assertThat(slow.getParameters()).containsExactly(List.of("7", "slow", "null"));
+        //SqlSampler 자신은 빼고 호출한 애플리케이션 코드부터
+        assertThat(slow.getStack()).isNotEmpty();
+        assertThat(slow.getStack().get(0)).contains("SqlSamplerTest.slowStatementKeepsParametersAndStack");
+    }
+
+    @Test
+    public void sampledStatementsHaveNoParameters() throws Exception {
+        //given
+        SqlSampler sampler = new SqlSampler(1.0, Duration.ofSeconds(1), 4, 8);
+        QueryInfo query = new QueryInfo("select * from member where member_id = ?");
+        query.getParametersList().add(List.of(parameter("setLong", 1, 1L)));
+
+        //when
+        for (int i = 0; i < 6; i++) {
+            sampler.afterQuery(execution(i), List.of(query));
+        }
+
+        //then
+        //최근 4개만
+        assertThat(sampler.getSampledCount()).isEqualTo(6);
+        assertThat(sampler.getSampled()).extracting(SqlSample::getElapsedMillis).containsExactly(5L, 4L, 3L, 2L);
+        assertThat(sampler.getSampled()).allMatch(sample -> sample.getParameters().isEmpty() && sample.getStack().isEmpty());
+    }
+
+    @Test
+    public void ringBufferKeepsLatest() throws Exception {
+        //given
+        //3은 4로 올림
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        IntStream.range(0, 10).forEach(buffer::add);
+        assertThat(buffer.getCapacity()).isEqualTo(4);
+        assertThat(buffer.snapshot()).containsExactly(9, 8, 7, 6);
+
+        //when
+        //여러 스레드가 동시에 넣어도 개수가 빠지지 않음
+        RingBuffer<Integer> shared = new RingBuffer<>(64);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.submit(() -> IntStream.range(0, 10_000).forEach(shared::add));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        //then
+        assertThat(shared.getAddedCount()).isEqualTo(80_000);
+        assertThat(shared.snapshot()).hasSize(64);
+    }
+
+    private static ExecutionInfo execution(long elapsedMillis) {
+        ExecutionInfo info = new ExecutionInfo();
+        info.setElapsedTime(elapsedMillis);
+        info.setSuccess(true);
+        return info;
+    }
+
+    private static ParameterSetOperation parameter(String method, int index, Object value) throws Exception {
+        Class<?> type = method.equals("setString") ? String.class : method.equals("setLong") ? long.class : int.class;
+        return new ParameterSetOperation(PreparedStatement.class.getMethod(method, int.class, type), new Object[]{index, value});
+    }
+}
@@ -0,0 +1,149 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+public class GeneratedProjectionTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @PersistenceContext
+    EntityManager em;
+
+    //엔티티 전체를 조회하는 오픈 프로젝션
+    public interface OpenProjection {
+        @Value("#{target.username + ' ' + target.age}")
+        String getDescription();
+    }
+
+    @Test
+    public void closedProjectionUsesGeneratedClass() {
+        //given
+        saveMembers("gp");
+
+        //when
+        List<UsernameOnly> result = memberRepository.findProjectionsByUsername("gp1");
+
+        //then
+        //jdk 프록시가 아니라 만들어둔 구현 클래스
+        UsernameOnly projection = result.get(0);
+        assertThat(Proxy.isProxyClass(projection.getClass())).isFalse();
+        assertThat(projection.getClass().getName()).isEqualTo(UsernameOnly.class.getName() + "$Generated");
+        assertThat(projection.getUsername()).isEqualTo("gp1");
+    }
+
+    @Test
+    public void nativeProjectionUsesGeneratedClass() {
+        //given
+        saveMembers("gpn");
+
+        //when
+        Page<MemberProjection> result = memberRepository.findByNativeProjection(PageRequest.of(0, 10));
+
+        //then
+        assertThat(result.getContent()).isNotEmpty().allSatisfy(projection -> {
+            assertThat(Proxy.isProxyClass(projection.getClass())).isFalse();
+            assertThat(projection.getUsername()).isNotNull();
+        });
+    }
+
+    @Test
+    public void accessorIsCachedPerInterface() {
+        GeneratedProjectionFactory factory = new GeneratedProjectionFactory();
+
+        //when
+        GeneratedProjectionFactory.ProjectionAccessor first = factory.accessorFor(MemberProjection.class).orElseThrow();
+        GeneratedProjectionFactory.ProjectionAccessor second = factory.accessorFor(MemberProjection.class).orElseThrow();
+        //id는 Long getter에 Integer 값, 타입이 다르면 변환
+        MemberProjection projection = factory.createProjection(MemberProjection.class,
+                Map.of("id", 1, "username", "member1", "teamName", "teamA"));
+
+        //then
+        assertThat(first).isSameAs(second);
+        assertThat(projection).isInstanceOf(first.getImplementation());
+        assertThat(projection.getId()).isEqualTo(1L);
+        assertThat(projection.getUsername()).isEqualTo("member1");
+        assertThat(projection.getTeamName()).isEqualTo("teamA");
+    }
+
+    //기본형 getter, 값이 null(left join 으로 없는 컬럼 등)이면 기본값
+    public interface PrimitiveProjection {
+        String getUsername();
+        int getAge();
+        long getTotal();
+        double getRatio();
+        char getInitial();
+        boolean isActive();
+    }
+
+    @Test
+    public void nullPrimitiveBecomesDefault() {
+        GeneratedProjectionFactory factory = new GeneratedProjectionFactory();
+
+        //when
+        PrimitiveProjection projection = factory.createProjection(PrimitiveProjection.class,
+                Map.of("username", "member1"));
+
+        //then
+        assertThat(projection.getUsername()).isEqualTo("member1");
+        assertThat(projection.getAge()).isZero();
+        assertThat(projection.getTotal()).isZero();
+        assertThat(projection.getRatio()).isZero();
+        assertThat(projection.getInitial()).isEqualTo('\u0000');
+        assertThat(projection.isActive()).isFalse();
+    }
+
+    @Test
+    public void openProjectionIsRejected() {
+        GeneratedProjectionFactory factory = new GeneratedProjectionFactory();
+
+        assertThatThrownBy(() -> factory.accessorFor(OpenProjection.class))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class);
+    }
+
+    @Test
+    public void nestedProjectionOnEntityIsRejected() {
+        //given
+        saveMembers("gpe");
+        GeneratedProjectionFactory factory = new GeneratedProjectionFactory();
+        Team team = em.createQuery("select t from Team t where t.name = 'gpeTeam'", Team.class).getSingleResult();
+
+        //then
+        //시작할 때 검사, team은 Team 엔티티 연관관계
+        assertThatThrownBy(() -> factory.validate(NestedClosedProjection.class, Member.class, "test"))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class);
+        //팀 엔티티 전체를 조회한 결과로 중첩 프로젝션을 만들면 예외
+        assertThatThrownBy(() -> factory.createProjection(NestedClosedProjection.class,
+                Map.of("username", "gpe1", "team", team)))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class);
+    }
+
+    private void saveMembers(String prefix) {
+        Team team = new Team(prefix + "Team");
+        em.persist(team);
+        em.persist(new Member(prefix + "1", 10, team));
+        em.persist(new Member(prefix + "2", 20, team));
+        em.flush();
+        em.clear();
+    }
+}
@@ -0,0 +1,194 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.BulkJobProgress;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 청크 단위 벌크 수정
+ *
+ * 청크마다 커밋하므로 테스트 트랜잭션(롤백)을 쓰지 않고 끝나면 직접 지움
+ * 다른 테스트가 남긴 회원과 섞이지 않게 나이 1000 이상만 수정
+ * */
+@SpringBootTest
+public class MemberBulkUpdaterTest {
+
+    @Autowired
+    MemberBulkUpdater bulkUpdater;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    TeamRepository teamRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @AfterEach
+    public void cleanUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'bulk%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name = 'bulkTeam'").executeUpdate();
+            em.createQuery("delete from BulkJobProgress p where p.jobName like 'bulk%'").executeUpdate();
+        });
+    }
+
+    @Test
+    public void bulkAgePlusInChunks() {
+        //given
+        List<Long> ids = saveMembers(25);
+
+        //when
+        BulkJobProgress progress = bulkUpdater.bulkAgePlus("bulk-chunks", 1000, 10);
+
+        //then
+        assertThat(progress.isCompleted()).isTrue();
+        assertThat(progress.getUpdatedRows()).isEqualTo(25);
+        assertThat(progress.getChunks()).isGreaterThanOrEqualTo(3);
+        assertThat(ages(ids)).allMatch(age -> age == 1001);
+
+        //끝난 작업을 다시 실행해도 한 번 더 더하지 않음
+        bulkUpdater.bulkAgePlus("bulk-chunks", 1000, 10);
+        assertThat(ages(ids)).allMatch(age -> age == 1001);
+    }
+
+    @Test
+    public void resumeAfterFailure() {
+        //given
+        //앞의 10명까지 처리하고 실패한 상황
+        List<Long> ids = saveMembers(25);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            BulkJobProgress progress = new BulkJobProgress("bulk-resume",
+                    MemberBulkUpdater.fingerprint("m.age = m.age + 1", "m.age >= :age", Map.of("age", 1000)));
+            progress.chunkDone(ids.get(9), 10);
+            em.persist(progress);
+        });
+
+        //when
+        BulkJobProgress progress = bulkUpdater.bulkAgePlus("bulk-resume", 1000, 10);
+
+        //then
+        //나머지 15명만 수정
+        assertThat(progress.getUpdatedRows()).isEqualTo(25);
+        List<Integer> ages = ages(ids);
+        assertThat(ages.subList(0, 10)).allMatch(age -> age == 1000);
+        assertThat(ages.subList(10, 25)).allMatch(age -> age == 1001);
+    }
+
+    @Test
+    public void rejectDifferentUpdateWithSameJobName() {
+        //given
+        List<Long> ids = saveMembers(5);
+        bulkUpdater.bulkAgePlus("bulk-same-name", 1000, 10);
+
+        //when, then
+        //같은 이름이지만 조건이 다르면 끝난 작업으로 건너뛰지 않고 예외
+        assertThatThrownBy(() -> bulkUpdater.execute("bulk-same-name", "m.age = m.age + 1", "m.age >= :age",
+                Map.of("age", 1001), 10))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class);
+        assertThatThrownBy(() -> bulkUpdater.execute("bulk-same-name", "m.age = m.age + 2", "m.age >= :age",
+                Map.of("age", 1000), 10))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class);
+        assertThat(ages(ids)).allMatch(age -> age == 1001);
+    }
+
+    @Test
+    public void concurrentFirstRunsShareOneProgressRow() throws Exception {
+        //given
+        List<Long> ids = saveMembers(25);
+        int callers = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+
+        //when
+        //진행 상황 row가 없는 상태에서 같은 이름으로 동시에 처음 실행
+        List<Future<BulkJobProgress>> futures = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return bulkUpdater.bulkAgePlus("bulk-race", 1000, 10);
+            }));
+        }
+        start.countDown();
+
+        //then
+        //기본키 위반 없이 모두 끝나고 회원마다 한 번만 수정
+        try {
+            for (Future<BulkJobProgress> future : futures) {
+                assertThat(future.get(30, TimeUnit.SECONDS).isCompleted()).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(ages(ids)).allMatch(age -> age == 1001);
+        assertThat(em.find(BulkJobProgress.class, "bulk-race").getUpdatedRows()).isEqualTo(25);
+    }
+
+    @Test
+    public void detachOnlyUpdatedMembers() {
+        //given
+        List<Long> ids = saveMembers(3);
+        Long teamId = new TransactionTemplate(transactionManager)
+                .execute(status -> teamRepository.save(new Team("bulkTeam")).getId());
+
+        TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        readOnlyTx.executeWithoutResult(status -> {
+            Member member = em.find(Member.class, ids.get(0));
+            Team team = em.find(Team.class, teamId);
+
+            //when
+            bulkUpdater.bulkAgePlus("bulk-detach", 1000, 2);
+
+            //then
+            //수정된 회원은 영속성 컨텍스트에서 빠지고 다시 조회하면 바뀐 값, 팀은 그대로
+            assertThat(em.contains(member)).isFalse();
+            assertThat(em.contains(team)).isTrue();
+            assertThat(em.find(Member.class, ids.get(0)).getAge()).isEqualTo(1001);
+        });
+    }
+
+    private List<Long> saveMembers(int count) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            List<Member> members = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                members.add(new Member("bulk" + i, 1000));
+            }
+            memberRepository.saveAllBatched(members, 100);
+            List<Long> ids = new ArrayList<>();
+            members.forEach(member -> ids.add(member.getId()));
+            return ids;
+        });
+    }
+
+    private List<Integer> ages(List<Long> ids) {
+        return em.createQuery("select m.age from Member m where m.id in :ids order by m.id", Integer.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+}
@@ -0,0 +1,123 @@
+package study.datajpa.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.controller.MemberExportWriter;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//scroll 커서로 회원 export
+@SpringBootTest
+@Transactional
+public class MemberExportTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    TeamRepository teamRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void exportCsvAndNdjson() throws Exception {
+        //given
+        Team team = teamRepository.save(new Team("team,A"));
+        memberRepository.save(new Member("export\"1", 10, team));
+        memberRepository.save(new Member("export2", 20));
+        em.flush();
+        em.clear();
+
+        //when
+        String csv = export(MemberExportWriter.Format.CSV);
+        String ndjson = export(MemberExportWriter.Format.NDJSON);
+
+        //then
+        //쉼표, 따옴표가 있는 값은 따옴표로 감쌈
+        assertThat(csv).startsWith("id,username,age,teamName\n");
+        assertThat(csv).contains(",\"export\"\"1\",10,\"team,A\"\n");
+        assertThat(csv).contains(",export2,20,\n");
+        assertThat(ndjson).contains("\"username\":\"export2\",\"age\":20,\"teamName\":null}\n");
+        assertThat(ndjson).doesNotContain("\n ");
+    }
+
+    /**
+     * 회원 수만큼 메모리가 늘어나지 않는지
+     *
+     * 읽는 도중 영속성 컨텍스트에 엔티티가 쌓이지 않아야 하고
+     * 힙 사용량도 시작할 때보다 크게 늘어나면 안 됨
+     * 전체를 List로 만들면 영속성 컨텍스트에 회원 수만큼 엔티티와 스냅샷이 남음
+     * */
+    @Test
+    public void scrollKeepsMemoryFlat() {
+        //given
+        int total = 50_000;
+        List<Team> teams = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            teams.add(teamRepository.save(new Team("scrollTeam" + i)));
+        }
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            members.add(new Member("scroll" + i, i % 80, teams.get(i % teams.size())));
+        }
+        memberRepository.saveAllBatched(members, 1000);
+        members.clear();
+
+        Session session = em.unwrap(Session.class);
+        long baseline = usedHeap();
+        AtomicLong maxHeapGrowth = new AtomicLong();
+        AtomicLong maxManagedEntities = new AtomicLong();
+        AtomicLong written = new AtomicLong();
+
+        //when
+        long count = memberRepository.scrollAllWithTeam(500, member -> {
+            maxManagedEntities.accumulateAndGet(session.getStatistics().getEntityCount(), Math::max);
+            if (member.getId() % 5_000 == 0) {
+                maxHeapGrowth.accumulateAndGet(usedHeap() - baseline, Math::max);
+            }
+            written.addAndGet(member.getUsername().length());
+        });
+
+        //then
+        System.out.println("count = " + count + ", maxManagedEntities = " + maxManagedEntities
+                + ", maxHeapGrowth = " + maxHeapGrowth.get() / 1024 + "KB");
+        assertThat(count).isGreaterThanOrEqualTo(total);
+        //현재 회원과 그 팀만 영속성 컨텍스트에 있어야함
+        assertThat(maxManagedEntities.get()).isLessThanOrEqualTo(2);
+        assertThat(maxHeapGrowth.get()).isLessThan(32L * 1024 * 1024);
+        assertThat(written.get()).isPositive();
+    }
+
+    private String export(MemberExportWriter.Format format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MemberExportWriter writer = MemberExportWriter.of(format, out, objectMapper.getFactory());
+        writer.start();
+        memberRepository.scrollAllWithTeam(100, writer::write);
+        writer.finish();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
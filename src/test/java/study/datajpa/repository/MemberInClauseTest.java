@@ -0,0 +1,116 @@
+package study.datajpa.repository;
+
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.monitoring.QueryCountExtension;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.datajpa.monitoring.QueryCountExtension.assertSelectCount;
+
+@SpringBootTest
+@Transactional
+@ExtendWith(QueryCountExtension.class)
+public class MemberInClauseTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    InClauseExecutor inClauseExecutor;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void largeCollectionIsChunked() {
+        //given
+        int chunkSize = inClauseExecutor.getChunkSize();
+        memberRepository.saveAllBatched(IntStream.range(0, chunkSize)
+                .mapToObj(i -> new Member("in" + i, 1))
+                .collect(Collectors.toList()), 100);
+        //있는 이름 chunkSize개 + 없는 이름 chunkSize개 + 중복
+        List<String> names = new ArrayList<>();
+        IntStream.range(0, chunkSize * 2).forEach(i -> names.add("in" + i));
+        names.add("in0");
+        QueryCountExtension.reset();
+
+        //when
+        List<Member> result = memberRepository.findByNames(names);
+
+        //then
+        //중복은 빼고 chunkSize개씩 두 번
+        assertThat(result).hasSize(chunkSize);
+        assertSelectCount(2);
+    }
+
+    @Test
+    public void paddingSharesQueryPlan() {
+        //given
+        Statistics statistics = em.unwrap(Session.class).getSessionFactory().getStatistics();
+        memberRepository.findByNames(List.of("p1", "p2", "p3", "p4", "p5"));
+        long misses = statistics.getQueryPlanCacheMissCount();
+
+        //when
+        //5~8개는 모두 8개로 채워져서 같은 sql
+        memberRepository.findByNames(List.of("p1", "p2", "p3", "p4", "p5", "p6"));
+        memberRepository.findByNames(List.of("p1", "p2", "p3", "p4", "p5", "p6", "p7"));
+        memberRepository.findByNames(List.of("p1", "p2", "p3", "p4", "p5", "p6", "p7", "p8"));
+
+        //then
+        assertThat(statistics.getQueryPlanCacheMissCount()).isEqualTo(misses);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void parallelChunksAreMerged() {
+        //given
+        List<Integer> keys = IntStream.range(0, inClauseExecutor.getChunkSize() * 3)
+                .boxed().collect(Collectors.toList());
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        //when
+        List<Integer> result = inClauseExecutor.execute(keys, chunk -> {
+            threads.add(Thread.currentThread().getName());
+            return chunk;
+        }, true);
+
+        //then
+        //청크 순서대로 합쳐짐
+        assertThat(result).containsExactlyElementsOf(keys);
+        assertThat(threads).allMatch(name -> name.startsWith("in-clause-"));
+    }
+
+    @Test
+    public void parallelInsideTransactionRunsInCallerThread() {
+        //given
+        List<Integer> keys = IntStream.range(0, inClauseExecutor.getChunkSize() * 2)
+                .boxed().collect(Collectors.toList());
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        //when
+        //호출한 쪽 트랜잭션의 커밋 안된 변경을 보려면 같은 스레드에서
+        inClauseExecutor.execute(keys, chunk -> {
+            threads.add(Thread.currentThread().getName());
+            return chunk;
+        }, true);
+
+        //then
+        assertThat(threads).containsExactly(Thread.currentThread().getName());
+    }
+}
@@ -7,9 +7,14 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.Rollback;
 import study.datajpa.entity.Member;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import javax.transaction.Transactional;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,6 +31,9 @@ public class MemberJpaRepositoryTest {
     @Autowired
     MemberJpaRepository memberJpaRepository;
 
+    @PersistenceContext
+    EntityManager em;
+
     @Test
     public void testMember() {
         Member member = new Member("memberA");
@@ -121,6 +129,38 @@ public class MemberJpaRepositoryTest {
         assertThat(totalCount).isEqualTo(5);
      }
 
+    //keyset 페이징은 username이 같아도 id로 이어가므로 offset 페이징과 같은 회원을 빠짐없이 한 번씩
+    @Test
+    @Rollback
+    public void pagingAfter() {
+        //given
+        int age = 955;
+        memberJpaRepository.save(new Member("member1", age));
+        memberJpaRepository.save(new Member("member2", age));
+        memberJpaRepository.save(new Member("member2", age));
+        memberJpaRepository.save(new Member("member2", age));
+        memberJpaRepository.save(new Member("member3", age));
+
+        //when
+        List<Member> byOffset = memberJpaRepository.findByPage(age, 0, 5);
+        List<Member> byKeyset = new ArrayList<>();
+        List<Member> page = memberJpaRepository.findByPageAfter(age, "\uffff", Long.MAX_VALUE, 2);
+        while (!page.isEmpty()) {
+            byKeyset.addAll(page);
+            Member last = page.get(page.size() - 1);
+            page = memberJpaRepository.findByPageAfter(age, last.getUsername(), last.getId(), 2);
+        }
+
+        //then
+        //username desc, 같은 username은 id desc
+        assertThat(byKeyset).hasSize(5).doesNotHaveDuplicates()
+                .containsExactlyInAnyOrderElementsOf(byOffset)
+                .isSortedAccordingTo(Comparator.comparing(Member::getUsername)
+                        .thenComparing(Member::getId).reversed());
+        assertThat(byKeyset).extracting(Member::getUsername)
+                .containsExactlyElementsOf(byOffset.stream().map(Member::getUsername).collect(Collectors.toList()));
+    }
+
     @Test
     public void bulkUpdate() throws Exception {
         //given
@@ -134,4 +174,24 @@ public class MemberJpaRepositoryTest {
         //then
         assertThat(resultCount).isEqualTo(3);
     }
-}
\ No newline at end of file
+
+    //벌크 수정도 version, 수정시간이 올라가야 그 전에 읽은 엔티티가 덮어쓰지 못함
+    @Test
+    @Rollback
+    public void bulkAgePlusIncrementsVersion() {
+        //given
+        Member member = memberJpaRepository.save(new Member("bulkVersion", 977));
+        em.flush();
+        Long version = member.getVersion();
+
+        //when
+        memberJpaRepository.bulkAgePlus(977);
+        em.clear();
+
+        //then
+        Member findMember = memberJpaRepository.find(member.getId());
+        assertThat(findMember.getAge()).isEqualTo(978);
+        assertThat(findMember.getVersion()).isEqualTo(version + 1);
+        assertThat(findMember.getLastModifiedDate()).isAfterOrEqualTo(member.getLastModifiedDate());
+    }
+}
@@ -0,0 +1,126 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//keyset 페이징 테스트
+@SpringBootTest
+@Transactional
+public class MemberKeysetPagingTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void keysetWalksEveryMemberOnce() {
+        //given
+        //username이 같은 회원이 여러 명이어도 member_id로 순서가 정해지는지
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            Member member = new Member("keyset" + (i % 5), i);
+            em.persist(member);
+            ids.add(member.getId());
+        }
+        em.flush();
+        em.clear();
+
+        //when
+        List<Member> visited = new ArrayList<>();
+        MemberKeyset keyset = MemberKeyset.first(MemberKeyset.SortKey.USERNAME, Sort.Direction.ASC);
+        int pages = 0;
+        while (true) {
+            KeysetSlice<Member> slice = memberRepository.findByKeyset(keyset, 5);
+            slice.getContent().stream()
+                    .filter(m -> ids.contains(m.getId()))
+                    .forEach(visited::add);
+            pages++;
+            if (!slice.isHasNext()) {
+                break;
+            }
+            //token으로 주고받는것 까지 확인
+            keyset = MemberKeyset.decode(slice.getNextToken());
+        }
+
+        //then
+        assertThat(pages).isGreaterThanOrEqualTo(5);
+        assertThat(visited).extracting(Member::getId).containsExactlyInAnyOrderElementsOf(ids);
+        List<String> usernames = visited.stream().map(Member::getUsername).collect(Collectors.toList());
+        assertThat(usernames).isSorted();
+    }
+
+    @Test
+    public void keysetDescendingMatchesOffsetPaging() {
+        //given
+        for (int i = 0; i < 12; i++) {
+            em.persist(new Member("desc" + i, i % 3));
+        }
+        em.flush();
+        em.clear();
+
+        //when
+        MemberKeyset keyset = MemberKeyset.first(MemberKeyset.SortKey.AGE, Sort.Direction.DESC);
+        KeysetSlice<Member> first = memberRepository.findByKeyset(keyset, 4);
+        KeysetSlice<Member> second = memberRepository.findByKeyset(MemberKeyset.decode(first.getNextToken()), 4);
+
+        //then
+        //offset 페이징과 같은 순서로 나와야함
+        Sort sort = Sort.by(Sort.Direction.DESC, "age").and(Sort.by(Sort.Direction.DESC, "id"));
+        List<Long> offsetIds = memberRepository.findAll(PageRequest.of(1, 4, sort)).getContent()
+                .stream().map(Member::getId).collect(Collectors.toList());
+        assertThat(second.getContent()).extracting(Member::getId).isEqualTo(offsetIds);
+    }
+
+    @Test
+    public void invalidToken() {
+        assertThatThrownBy(() -> MemberKeyset.decode("not-a-token"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * 여러 깊이의 페이지에서 keyset 페이징이 offset 페이징과 같은 회원을 가져오는지
+     * 깊이별 조회 시간은 KeysetPagingBenchmark (src/jmh)
+     * */
+    @Test
+    public void keysetMatchesOffsetAtDepth() {
+        //given
+        int size = 5;
+        for (int i = 0; i < 60; i++) {
+            em.persist(new Member(String.format("depth%03d", i / 2), i));
+        }
+        em.flush();
+        em.clear();
+
+        Sort sort = Sort.by("username").and(Sort.by("id"));
+        for (int page : new int[]{0, 3, 11}) {
+            //keyset은 직전 페이지 마지막 회원을 기준으로 시작
+            MemberKeyset first = MemberKeyset.first(MemberKeyset.SortKey.USERNAME, Sort.Direction.ASC);
+            MemberKeyset keyset = page == 0 ? first
+                    : first.after(memberRepository.findAll(PageRequest.of(page * size - 1, 1, sort)).getContent().get(0));
+
+            //when
+            List<Member> byKeyset = memberRepository.findByKeyset(keyset, size).getContent();
+
+            //then
+            List<Long> offsetIds = memberRepository.findAll(PageRequest.of(page, size, sort)).getContent()
+                    .stream().map(Member::getId).collect(Collectors.toList());
+            assertThat(byKeyset).extracting(Member::getId).isEqualTo(offsetIds);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package study.datajpa.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//조회가 새 트랜잭션에서 실행되므로 데이터를 커밋하고 끝나면 지움
+@SpringBootTest
+public class MemberLookupTest {
+
+    @Autowired
+    MemberLookup memberLookup;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    TeamRepository teamRepository;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @AfterEach
+    public void cleanUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'lookup%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name = 'lookupTeam'").executeUpdate();
+        });
+    }
+
+    @Test
+    public void concurrentLookupsAreCountedAsExecutedOrShared() throws Exception {
+        //given
+        Team team = teamRepository.save(new Team("lookupTeam"));
+        Long id = memberRepository.save(new Member("lookup1", 10, team)).getId();
+        double executedBefore = count("findById", "executed");
+        double sharedBefore = count("findById", "shared");
+        int callers = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+
+        //when
+        List<Future<Optional<MemberDto>>> futures = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return memberLookup.findById(id);
+            }));
+        }
+        start.countDown();
+
+        //then
+        for (Future<Optional<MemberDto>> future : futures) {
+            MemberDto member = future.get(10, TimeUnit.SECONDS).orElseThrow();
+            assertThat(member.getUsername()).isEqualTo("lookup1");
+            assertThat(member.getTeamName()).isEqualTo("lookupTeam");
+        }
+        executor.shutdown();
+        //동시에 몰린 만큼 shared, 몇 개가 겹칠지는 스케줄링에 따라 다름
+        double executed = count("findById", "executed") - executedBefore;
+        double shared = count("findById", "shared") - sharedBefore;
+        assertThat(executed + shared).isEqualTo(callers);
+        assertThat(executed).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    public void missingMember() {
+        assertThat(memberLookup.findById(-1L)).isEmpty();
+        assertThat(memberLookup.findByUsername("lookupNobody")).isEmpty();
+    }
+
+    @Test
+    public void writeTransactionSeesItsOwnChanges() {
+        //when
+        //커밋 전 회원은 다른 트랜잭션에서 보이지 않으므로 합치지 않고 같은 트랜잭션에서 조회
+        Optional<MemberDto> found = new TransactionTemplate(transactionManager).execute(status -> {
+            memberRepository.save(new Member("lookupUncommitted", 10));
+            return memberLookup.findByUsername("lookupUncommitted");
+        });
+
+        //then
+        assertThat(found).isPresent();
+    }
+
+    @Test
+    public void lookupDoesNotUseRequestPersistenceContext() {
+        //given
+        Long id = memberRepository.save(new Member("lookupOsiv", 10)).getId();
+        //OpenEntityManagerInViewInterceptor 처럼 요청 영속성 컨텍스트를 스레드에 묶음
+        EntityManager requestEm = emf.createEntityManager();
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(requestEm));
+        try {
+            //when
+            Optional<MemberDto> found = memberLookup.findById(id);
+
+            //then
+            //회원은 요청 영속성 컨텍스트에 없고, 요청 영속성 컨텍스트는 커넥션을 잡지 않음
+            SessionImplementor session = requestEm.unwrap(SessionImplementor.class);
+            assertThat(found).isPresent();
+            assertThat(session.getPersistenceContext().getNumberOfManagedEntities()).isZero();
+            assertThat(session.getJdbcCoordinator().getLogicalConnection().isPhysicallyConnected()).isFalse();
+            assertThat(TransactionSynchronizationManager.getResource(emf))
+                    .isInstanceOfSatisfying(EntityManagerHolder.class,
+                            holder -> assertThat(holder.getEntityManager()).isSameAs(requestEm));
+        } finally {
+            TransactionSynchronizationManager.unbindResource(emf);
+            requestEm.close();
+        }
+    }
+
+    private double count(String operation, String result) {
+        return registry.get("datajpa.member.lookup")
+                .tag("operation", operation)
+                .tag("result", result)
+                .counter().count();
+    }
+}
@@ -0,0 +1,97 @@
+package study.datajpa.repository;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.monitoring.QueryCountExtension;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.datajpa.monitoring.QueryCountExtension.assertSelectCount;
+
+@SpringBootTest
+@Transactional
+@ExtendWith(QueryCountExtension.class)
+public class MemberMultiLoadTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void inputOrderWithTeams() {
+        //given
+        Team teamA = new Team("multiA");
+        Team teamB = new Team("multiB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member m1 = new Member("multi1", 10, teamA);
+        Member m2 = new Member("multi2", 20, teamB);
+        Member m3 = new Member("multi3", 30, teamA);
+        em.persist(m1);
+        em.persist(m2);
+        em.persist(m3);
+        em.flush();
+        em.clear();
+        QueryCountExtension.reset();
+
+        //when
+        List<Member> result = memberRepository.findAllByIdBatched(List.of(m3.getId(), -1L, m1.getId(), m2.getId()));
+
+        //then
+        //넘긴 순서대로, 없는 id는 빠짐
+        assertThat(result).extracting(Member::getUsername).containsExactly("multi3", "multi1", "multi2");
+        assertThat(result).allMatch(member -> Hibernate.isInitialized(member.getTeam()));
+        assertThat(result).extracting(member -> member.getTeam().getName())
+                .containsExactly("multiA", "multiA", "multiB");
+        //회원 한 번, 팀 한 번
+        assertSelectCount(2);
+    }
+
+    @Test
+    public void persistenceContextIsCheckedFirst() {
+        //given
+        Member member = new Member("multiCached", 10);
+        em.persist(member);
+        em.flush();
+        QueryCountExtension.reset();
+
+        //when
+        List<Member> result = memberRepository.findAllByIdBatched(List.of(member.getId()));
+
+        //then
+        assertThat(result).containsExactly(member);
+        assertSelectCount(0);
+    }
+
+    @Test
+    public void idsAreLoadedInBatches() {
+        //given
+        //batch-size 100, 150명은 in 절 두 번
+        List<Member> members = IntStream.range(0, 150)
+                .mapToObj(i -> new Member("multiBatch" + i, 10))
+                .collect(Collectors.toList());
+        memberRepository.saveAllBatched(members, 100);
+        List<Long> ids = members.stream().map(Member::getId).collect(Collectors.toList());
+        QueryCountExtension.reset();
+
+        //when
+        List<Member> result = memberRepository.findAllByIdBatched(ids);
+
+        //then
+        assertThat(result).extracting(Member::getId).containsExactlyElementsOf(ids);
+        assertSelectCount(2);
+    }
+}
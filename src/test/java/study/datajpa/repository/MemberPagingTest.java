@@ -0,0 +1,91 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.monitoring.QueryCountExtension;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.datajpa.monitoring.QueryCountExtension.assertSelectCount;
+
+//count 쿼리를 줄인 페이징, 나이로 다른 테스트 데이터와 구분
+@SpringBootTest
+@Transactional
+@ExtendWith(QueryCountExtension.class)
+public class MemberPagingTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void shortLastPageSkipsCount() {
+        //given
+        saveMembers(777, 7);
+
+        //when
+        Page<Member> page = memberRepository.findPageByAge(777, PageRequest.of(1, 5, Sort.by("id")), CountMode.EXACT);
+
+        //then
+        //2번째 페이지에 2명, 앞 페이지 5명 + 2명으로 전체 개수를 알 수 있으므로 count 안함
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.getTotalElements()).isEqualTo(7);
+        assertThat(page.isLast()).isTrue();
+        assertSelectCount(1);
+    }
+
+    @Test
+    public void cachedCount() {
+        //given
+        saveMembers(778, 12);
+
+        //when
+        Page<Member> first = memberRepository.findPageByAge(778, PageRequest.of(0, 5), CountMode.CACHED);
+        QueryCountExtension.reset();
+        Page<Member> second = memberRepository.findPageByAge(778, PageRequest.of(1, 5), CountMode.CACHED);
+
+        //then
+        //두 번째 페이지는 캐시된 count를 씀
+        assertThat(first.getTotalElements()).isEqualTo(12);
+        assertThat(second.getTotalElements()).isEqualTo(12);
+        assertThat(second.getTotalPages()).isEqualTo(3);
+        assertSelectCount(1);
+    }
+
+    @Test
+    public void estimatedCount() {
+        //given
+        saveMembers(779, 6);
+
+        //when
+        Page<Member> page = memberRepository.findAllPage(PageRequest.of(0, 5), CountMode.ESTIMATED);
+
+        //then
+        //count(*) 대신 information_schema 통계
+        assertThat(page.getContent()).hasSize(5);
+        assertThat(page.getTotalElements()).isGreaterThanOrEqualTo(5);
+        assertThat(QueryCountExtension.log().repeatedSelects(1).keySet())
+                .noneMatch(sql -> sql.contains("count("))
+                .anyMatch(sql -> sql.contains("information_schema"));
+    }
+
+    private void saveMembers(int age, int count) {
+        for (int i = 0; i < count; i++) {
+            memberRepository.save(new Member("paging" + i, age));
+        }
+        em.flush();
+        em.clear();
+        QueryCountExtension.reset();
+    }
+}
@@ -1,7 +1,9 @@
 package study.datajpa.repository;
 
 import org.assertj.core.api.Assertions;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.*;
@@ -10,20 +12,26 @@ import org.springframework.test.annotation.Rollback;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 import study.datajpa.entity.Team;
+import study.datajpa.monitoring.QueryCountExtension;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.transaction.Transactional;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.assertj.core.api.Assertions.assertThat;
+import static study.datajpa.monitoring.QueryCountExtension.assertNoRepeatedSelects;
+import static study.datajpa.monitoring.QueryCountExtension.assertSelectCount;
 
 //스프링 데이터 JPA테스트
 @SpringBootTest
 @Transactional
 //@Rollback(false)
+//테스트마다 실행된 SQL 개수 세기, assertSelectCount
+@ExtendWith(QueryCountExtension.class)
 public class MemberRepositoryTest {
 
     //MemberRepository는 인터페이스, 프록시 객체임
@@ -137,6 +145,27 @@ public class MemberRepositoryTest {
         assertThat(result.size()).isEqualTo(1);
     }
 
+    //대량 저장, chunk마다 flush clear 해서 영속성 컨텍스트가 비워지는지
+    @Test
+    public void saveAllBatched() {
+        Team team = new Team("teamA");
+        teamRepository.save(team);
+
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            members.add(new Member("batch" + i, i, team));
+        }
+
+        memberRepository.saveAllBatched(members, 100);
+
+        //영속성 컨텍스트에 남아있는 엔티티가 없어야함
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isEqualTo(0);
+        assertThat(em.contains(members.get(0))).isFalse();
+        //pooled 시퀀스로 persist 시점에 id가 채워짐
+        assertThat(members).allMatch(m -> m.getId() != null);
+        assertThat(memberRepository.findByUsername("batch249")).hasSize(1);
+    }
+
     //MemberRepository인터페이스에서 @Query로 이용한거 테스트
     @Test
     public void testNamedQuery() {
@@ -186,7 +215,7 @@ public class MemberRepositoryTest {
         teamRepository.save(team);
 
         Member m1 = new Member("AAA", 10);
-        m1.setTeam(team);
+        m1.changeTeam(team);
         memberRepository.save(m1);
 
         List<MemberDto> memberDto = memberRepository.findMemberDto();
@@ -376,6 +405,74 @@ public class MemberRepositoryTest {
         }
     }
 
+    //dto 페이징, 엔티티를 영속성 컨텍스트에 올리지 않음
+    @Test
+    public void findMemberDtoPage() {
+        //given
+        Team teamA = teamRepository.save(new Team("teamA"));
+        memberRepository.save(new Member("dtoPage1", 10, teamA));
+        memberRepository.save(new Member("dtoPage2", 20));
+        em.flush();
+        em.clear();
+        QueryCountExtension.reset();
+
+        //when
+        Page<MemberDto> page = memberRepository.findMemberDtoPage(
+                PageRequest.of(0, 100, Sort.by(Sort.Direction.DESC, "id")));
+
+        //then
+        assertThat(page.getContent())
+                .extracting(MemberDto::getUsername, MemberDto::getTeamName)
+                .contains(tuple("dtoPage1", "teamA"), tuple("dtoPage2", null));
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+        assertNoRepeatedSelects();
+    }
+
+    //페치 조인은 회원과 팀을 select 한 번으로
+    @Test
+    public void findMemberFetchJoinSelectCount() {
+        //given
+        Team teamA = teamRepository.save(new Team("teamA"));
+        Team teamB = teamRepository.save(new Team("teamB"));
+        memberRepository.save(new Member("member1", 10, teamA));
+        memberRepository.save(new Member("member2", 10, teamB));
+        em.flush();
+        em.clear();
+        QueryCountExtension.reset();
+
+        //when
+        List<Member> members = memberRepository.findMemberFetchJoin();
+        members.forEach(member -> member.getTeam().getName());
+
+        //then
+        assertSelectCount(1);
+        assertNoRepeatedSelects();
+    }
+
+    //지연 로딩이면 팀마다 id만 다른 같은 select가 반복됨 (N+1)
+    @Test
+    public void lazyTeamIsRepeatedSelect() {
+        //given
+        Team teamA = teamRepository.save(new Team("teamA"));
+        Team teamB = teamRepository.save(new Team("teamB"));
+        memberRepository.save(new Member("member1", 10, teamA));
+        memberRepository.save(new Member("member2", 10, teamB));
+        em.flush();
+        em.clear();
+        QueryCountExtension.reset();
+
+        //when
+        List<Member> members = memberRepository.findMemberCustom();
+        members.forEach(member -> {
+            if (member.getTeam() != null) {
+                member.getTeam().getName();
+            }
+        });
+
+        //then
+        assertThat(QueryCountExtension.log().repeatedSelects(2)).isNotEmpty();
+    }
+
     //조회용으로만 쓰는 JPA표준은 제공을 안함
     @Test
     public void queryHint() throws Exception {
@@ -472,9 +569,10 @@ public class MemberRepositoryTest {
         //엔티티 자체가 검색조건
         Member member = new Member("m1");
         Team team = new Team("teamA"); //내부조인으로 teamA 가능
-        member.setTeam(team);
+        member.changeTeam(team);
         //ExampleMatcher 생성, age 프로퍼티는 무시
-        ExampleMatcher matcher = ExampleMatcher.matching().withIgnorePaths("age");
+        //팀 memberCount 도 int 라 값이 항상 조건으로 들어가므로 무시
+        ExampleMatcher matcher = ExampleMatcher.matching().withIgnorePaths("age", "team.memberCount");
 
         Example<Member> example = Example.of(member, matcher);
         List<Member> result = memberRepository.findAll(example);
@@ -508,6 +606,56 @@ public class MemberRepositoryTest {
         Assertions.assertThat(result.size()).isEqualTo(1);
     }
 
+    @Test
+    public void nestedProjections() {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("m1", 0, teamA));
+        em.persist(new Member("m2", 0));
+        em.flush();
+        em.clear();
+        em.unwrap(Session.class).getSessionFactory().getStatistics().clear();
+        QueryCountExtension.reset();
+
+        //when
+        //select m.username, t.name from member m left join team t ... 팀 엔티티를 만들지 않음
+        List<NestedClosedProjection> result =
+                memberRepository.findProjectionsByUsername("m1", NestedClosedProjection.class);
+        List<NestedClosedProjection> noTeam =
+                memberRepository.findProjectionsByUsername("m2", NestedClosedProjection.class);
+
+        //then
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getUsername()).isEqualTo("m1");
+        assertThat(result.get(0).getTeam().getName()).isEqualTo("teamA");
+        assertThat(noTeam.get(0).getTeam()).isNull();
+        assertSelectCount(2);
+        assertThat(em.unwrap(Session.class).getSessionFactory().getStatistics().getEntityLoadCount()).isZero();
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    public void nestedProjectionWithNullColumns() {
+        //given
+        //팀은 있지만 이름이 null
+        Team noName = new Team(null);
+        em.persist(noName);
+        em.persist(new Member("m1", 0, noName));
+        em.flush();
+        em.clear();
+
+        //when
+        List<NestedClosedProjection> result =
+                memberRepository.findProjectionsByUsername("m1", NestedClosedProjection.class);
+
+        //then
+        //팀 여부는 팀 id로 판단, 컬럼이 모두 null 이어도 getTeam()은 null 아님
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getTeam()).isNotNull();
+        assertThat(result.get(0).getTeam().getName()).isNull();
+    }
+
     @Test
     public void nativeQuery() {
         //given
@@ -0,0 +1,107 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SingleFlightTest {
+
+    SingleFlight<Long, String> flight = new SingleFlight<>();
+
+    @Test
+    public void concurrentCallsShareOneExecution() throws Exception {
+        //given
+        int callers = 8;
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+
+        //when
+        //첫 호출이 끝나지 않게 잡아두고 나머지를 보냄
+        List<Future<SingleFlight.Result<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            futures.add(executor.submit(() -> flight.execute(1L, () -> {
+                executions.incrementAndGet();
+                await(release);
+                return "member1";
+            })));
+        }
+        //나머지가 모두 leader 결과를 기다리기 시작하면 풀어줌
+        awaitUntil(() -> flight.waiting(1L) == callers - 1);
+        release.countDown();
+
+        //then
+        int shared = 0;
+        for (Future<SingleFlight.Result<String>> future : futures) {
+            SingleFlight.Result<String> result = future.get(10, TimeUnit.SECONDS);
+            assertThat(result.getValue()).isEqualTo("member1");
+            shared += result.isShared() ? 1 : 0;
+        }
+        executor.shutdown();
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(shared).isEqualTo(callers - 1);
+        assertThat(flight.inFlight()).isZero();
+    }
+
+    @Test
+    public void finishedCallIsNotCached() {
+        AtomicInteger executions = new AtomicInteger();
+
+        flight.execute(1L, () -> "v" + executions.incrementAndGet());
+        SingleFlight.Result<String> second = flight.execute(1L, () -> "v" + executions.incrementAndGet());
+
+        assertThat(second.getValue()).isEqualTo("v2");
+        assertThat(second.isShared()).isFalse();
+    }
+
+    @Test
+    public void exceptionIsSharedAndNotKept() throws Exception {
+        //given
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        //when
+        Future<?> leader = executor.submit(() -> flight.execute(1L, () -> {
+            await(release);
+            throw new IllegalStateException("db down");
+        }));
+        awaitUntil(() -> flight.inFlight() == 1);
+        Future<?> follower = executor.submit(() -> flight.execute(1L, () -> "not called"));
+        awaitUntil(() -> flight.waiting(1L) == 1);
+        release.countDown();
+
+        //then
+        assertThatThrownBy(() -> leader.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> follower.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        executor.shutdown();
+        //실패한 결과는 남지 않음
+        assertThat(flight.execute(1L, () -> "member1").getValue()).isEqualTo("member1");
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package study.datajpa.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Team 2차 캐시, TeamRepository.findAll 쿼리 캐시
+ *
+ * 쿼리 캐시는 team 테이블을 바꾼 트랜잭션이 끝나야 다시 쓸 수 있으므로
+ * 테스트 트랜잭션(롤백)이 아니라 TransactionTemplate으로 커밋하고 끝나면 직접 지움
+ * */
+@SpringBootTest
+public class TeamCacheTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    TeamRepository teamRepository;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void memberListingStopsSelectingTeams() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        List<Long> memberIds = tx.execute(status -> {
+            Team teamA = teamRepository.save(new Team("cacheTeamA"));
+            Team teamB = teamRepository.save(new Team("cacheTeamB"));
+            Member m1 = memberRepository.save(new Member("cache1", 10, teamA));
+            Member m2 = memberRepository.save(new Member("cache2", 20, teamB));
+            return List.of(m1.getId(), m2.getId());
+        });
+
+        try {
+            //첫 번째 조회는 팀 프록시를 초기화 할 때 팀을 select 하고 2차 캐시에 넣음
+            tx.executeWithoutResult(status -> touchTeams(memberIds));
+
+            //when
+            statistics.clear();
+            tx.executeWithoutResult(status -> touchTeams(memberIds));
+
+            //then
+            //회원 select 한 번만 나가고 팀은 2차 캐시에서
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+            assertThat(statistics.getDomainDataRegionStatistics("team").getHitCount()).isEqualTo(2);
+            assertThat(statistics.getEntityLoadCount()).isEqualTo(2);
+        } finally {
+            tx.executeWithoutResult(status -> {
+                em.createQuery("delete from Member m where m.id in :ids")
+                        .setParameter("ids", memberIds)
+                        .executeUpdate();
+                em.createQuery("delete from Team t where t.name in ('cacheTeamA', 'cacheTeamB')").executeUpdate();
+            });
+        }
+    }
+
+    @Test
+    public void teamFindAllUsesQueryCache() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        Long teamId = tx.execute(status -> teamRepository.save(new Team("queryCacheTeam")).getId());
+
+        try {
+            //첫 번째는 쿼리 실행 후 결과를 쿼리 캐시에 넣음
+            teamRepository.findAll();
+
+            //when
+            statistics.clear();
+            List<Team> teams = teamRepository.findAll();
+
+            //then
+            assertThat(teams).extracting(Team::getId).contains(teamId);
+            assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(0);
+
+            //팀이 추가되면 쿼리 캐시가 무효화 되어 다시 db에서
+            Long newTeamId = tx.execute(status -> teamRepository.save(new Team("queryCacheTeam2")).getId());
+            statistics.clear();
+            assertThat(teamRepository.findAll()).extracting(Team::getId).contains(teamId, newTeamId);
+            assertThat(statistics.getQueryCacheMissCount()).isEqualTo(1);
+        } finally {
+            tx.executeWithoutResult(status -> em.createQuery(
+                    "delete from Team t where t.name in ('queryCacheTeam', 'queryCacheTeam2')").executeUpdate());
+        }
+    }
+
+    private void touchTeams(List<Long> memberIds) {
+        //페치 조인 없이 회원만 조회, 팀은 지연 로딩
+        List<Member> members = em.createQuery("select m from Member m where m.id in :ids", Member.class)
+                .setParameter("ids", memberIds)
+                .getResultList();
+        List<String> teamNames = members.stream()
+                .map(m -> m.getTeam().getName())
+                .collect(Collectors.toList());
+        assertThat(teamNames).containsExactlyInAnyOrder("cacheTeamA", "cacheTeamB");
+    }
+}
@@ -0,0 +1,136 @@
+package study.datajpa.repository;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.monitoring.QueryCountExtension;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static study.datajpa.monitoring.QueryCountExtension.assertSelectCount;
+
+/**
+ * 팀 400개, 10번째 팀마다 회원 없음, 나머지는 회원 20명씩 (회원 7200명)
+ * */
+@SpringBootTest
+@Transactional
+@ExtendWith(QueryCountExtension.class)
+public class TeamPagingTest {
+
+    static final int TEAMS = 400;
+    static final int MEMBERS_PER_TEAM = 20;
+
+    @Autowired
+    TeamRepository teamRepository;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @BeforeEach
+    public void setUp() {
+        for (int i = 0; i < TEAMS; i++) {
+            Team team = new Team(String.format("pagingTeam%03d", i));
+            em.persist(team);
+            if (i % 10 != 0) {
+                for (int j = 0; j < MEMBERS_PER_TEAM; j++) {
+                    em.persist(new Member("pagingMember" + i + "_" + j, j, team));
+                }
+            }
+            if (i % 50 == 49) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+        QueryCountExtension.reset();
+    }
+
+    @Test
+    public void fetchJoinPageReadsOnlyPageRows() {
+        //given
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        long entityLoads = statistics.getEntityLoadCount();
+        PageRequest pageRequest = PageRequest.of(1, 10, Sort.by("name"));
+
+        //when
+        Page<Team> page = teamRepository.findTeamFetchJoin(pageRequest);
+
+        //then
+        //회원 없는 pagingTeam000, 010 은 빠지고 이름순 11번째부터
+        assertThat(page.getContent()).extracting(Team::getName)
+                .containsExactly("pagingTeam012", "pagingTeam013", "pagingTeam014", "pagingTeam015",
+                        "pagingTeam016", "pagingTeam017", "pagingTeam018", "pagingTeam019",
+                        "pagingTeam021", "pagingTeam022");
+        assertThat(page.getContent()).allMatch(team -> Hibernate.isInitialized(team.getMembers()))
+                .allMatch(team -> team.getMembers().size() == MEMBERS_PER_TEAM);
+        assertThat(page.getTotalElements()).isGreaterThanOrEqualTo(TEAMS * 9 / 10);
+        //팀 id, 팀 + 회원, count
+        assertSelectCount(3);
+        //페이지의 팀 10개와 그 회원만 읽음
+        assertThat(statistics.getEntityLoadCount() - entityLoads).isEqualTo(10 + 10 * MEMBERS_PER_TEAM);
+    }
+
+    @Test
+    public void entityGraphPageKeepsTeamsWithoutMembers() {
+        //when
+        Page<Team> page = teamRepository.findTeamEntityGraph(PageRequest.of(0, 3, Sort.by("name")));
+
+        //then
+        assertThat(page.getContent()).extracting(Team::getName)
+                .containsExactly("pagingTeam000", "pagingTeam001", "pagingTeam002");
+        assertThat(page.getContent()).allMatch(team -> Hibernate.isInitialized(team.getMembers()));
+        assertThat(page.getContent().get(0).getMembers()).isEmpty();
+        assertThat(page.getContent().get(1).getMembers()).hasSize(MEMBERS_PER_TEAM);
+        assertSelectCount(3);
+    }
+
+    @Test
+    public void pageAllocatesFarLessThanLoadingEverything() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        PageRequest pageRequest = PageRequest.of(3, 10, Sort.by("name"));
+        //쿼리 파싱, 실행 계획 캐시 같은 처음 한 번 드는 비용은 빼고 비교
+        teamRepository.findTeamFetchJoin(pageRequest);
+        teamRepository.findTeamFetchJoin();
+        em.clear();
+
+        //when
+        long paged = allocatedBytes(threads, () -> teamRepository.findTeamFetchJoin(pageRequest));
+        long all = allocatedBytes(threads, () -> teamRepository.findTeamFetchJoin());
+        System.out.printf("page allocated %d KB, all teams allocated %d KB%n", paged / 1024, all / 1024);
+
+        //then
+        //페이지는 팀 400개 중 10개, 메모리 페이징이었다면 둘이 비슷함
+        assertThat(paged).isLessThan(all / 5);
+    }
+
+    private long allocatedBytes(com.sun.management.ThreadMXBean threads, Supplier<?> query) {
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        query.get();
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        em.clear();
+        return allocated;
+    }
+}
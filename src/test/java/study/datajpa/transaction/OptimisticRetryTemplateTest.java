@@ -0,0 +1,187 @@
+package study.datajpa.transaction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//스레드마다 따로 커밋해야 하므로 테스트 트랜잭션 없이, 만든 회원은 끝나고 지움
+@SpringBootTest
+public class OptimisticRetryTemplateTest {
+
+    @Autowired
+    OptimisticRetryTemplate retryTemplate;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @AfterEach
+    public void cleanUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                em.createQuery("delete from Member m where m.username like 'optimistic%'").executeUpdate());
+    }
+
+    @Test
+    public void conflictIsRetried() {
+        //given
+        Long id = saveMember("optimistic1");
+        AtomicInteger attempts = new AtomicInteger();
+
+        //when
+        retryTemplate.executeWithoutResult(status -> {
+            Member member = memberRepository.findById(id).get();
+            if (attempts.incrementAndGet() == 1) {
+                //읽은 뒤 다른 트랜잭션이 먼저 수정, 이번 커밋은 version이 달라 실패
+                addAgeInNewTransaction(id);
+            }
+            member.setAge(member.getAge() + 1);
+        });
+
+        //then
+        //두 번째 시도에서 다시 읽고 성공, 두 수정 모두 반영
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(memberRepository.findById(id).get().getAge()).isEqualTo(2);
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() {
+        //given
+        Long id = saveMember("optimistic2");
+        AtomicInteger attempts = new AtomicInteger();
+
+        //when
+        //매번 충돌
+        assertThatThrownBy(() -> retryTemplate.executeWithoutResult(status -> {
+            attempts.incrementAndGet();
+            Member member = memberRepository.findById(id).get();
+            addAgeInNewTransaction(id);
+            member.setAge(member.getAge() + 1);
+        })).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        //then
+        assertThat(attempts.get()).isEqualTo(retryTemplate.getMaxAttempts());
+    }
+
+    @Test
+    public void otherExceptionIsNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> retryTemplate.executeWithoutResult(status -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("not a lock conflict");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    /**
+     * 회원 32명을 여러 스레드가 동시에 나이 + 1, 가끔 같은 회원을 동시에 수정
+     * 비관적 락: select ... for update 로 읽고 수정, 같은 회원은 줄을 서서 기다림
+     * 낙관적 락: 락 없이 읽고 커밋할 때 충돌하면 다시 시도
+     * 둘 다 수정이 빠짐없이 반영되어야 하고, 처리량(ops/s)은 출력만 함
+     * */
+    @Test
+    public void concurrentUpdatesPessimisticVsOptimistic() throws Exception {
+        //given
+        int threads = 8;
+        int updatesPerThread = 25;
+        int members = 32;
+        List<Long> pessimisticIds = saveMembers("optimisticP", members);
+        List<Long> optimisticIds = saveMembers("optimisticO", members);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        AtomicInteger attempts = new AtomicInteger();
+
+        //when
+        double pessimistic = run(threads, updatesPerThread, i -> tx.executeWithoutResult(status -> {
+            Member member = memberRepository.findLockByUsername("optimisticP" + (i % members)).get(0);
+            member.setAge(member.getAge() + 1);
+        }));
+        double optimistic = run(threads, updatesPerThread, i -> retryTemplate.executeWithoutResult(status -> {
+            attempts.incrementAndGet();
+            Member member = memberRepository.findById(optimisticIds.get(i % members)).get();
+            member.setAge(member.getAge() + 1);
+        }));
+        System.out.printf("pessimistic = %.1f ops/s, optimistic = %.1f ops/s (%d attempts for %d updates)%n",
+                pessimistic, optimistic, attempts.get(), threads * updatesPerThread);
+
+        //then
+        assertThat(totalAge(pessimisticIds)).isEqualTo(threads * updatesPerThread);
+        assertThat(totalAge(optimisticIds)).isEqualTo(threads * updatesPerThread);
+    }
+
+    private double run(int threads, int updatesPerThread, Consumer<Integer> update) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < updatesPerThread; i++) {
+                    update.accept(offset + i);
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        long elapsed = System.nanoTime() - begin;
+        executor.shutdown();
+        return threads * updatesPerThread / (elapsed / 1_000_000_000.0);
+    }
+
+    private void addAgeInNewTransaction(Long id) {
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        requiresNew.executeWithoutResult(status -> {
+            Member member = memberRepository.findById(id).get();
+            member.setAge(member.getAge() + 1);
+        });
+    }
+
+    private Long saveMember(String username) {
+        return memberRepository.save(new Member(username, 0)).getId();
+    }
+
+    private List<Long> saveMembers(String prefix, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(saveMember(prefix + i));
+        }
+        return ids;
+    }
+
+    private int totalAge(List<Long> ids) {
+        return memberRepository.findAllById(ids).stream().mapToInt(Member::getAge).sum();
+    }
+}
@@ -0,0 +1,123 @@
+package study.datajpa.transaction;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.method.HandlerMethod;
+import study.datajpa.controller.MemberController;
+import study.datajpa.controller.MemberExportWriter;
+import study.datajpa.entity.Member;
+import study.datajpa.monitoring.QueryCountExtension;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static study.datajpa.monitoring.QueryCountExtension.assertUpdateCount;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+@ExtendWith(QueryCountExtension.class)
+public class ReadOnlyRequestTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MemberController memberController;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Test
+    public void readOnlyHandlerSkipsSnapshotsAndFlush() throws Exception {
+        //given
+        Long id = memberRepository.save(new Member("readOnly1", 10)).getId();
+        em.flush();
+        em.clear();
+        Session session = em.unwrap(Session.class);
+        ReadOnlyRequestInterceptor interceptor = new ReadOnlyRequestInterceptor(emf);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        HandlerMethod handler = new HandlerMethod(memberController,
+                MemberController.class.getMethod("findMember2", Member.class));
+
+        //when
+        interceptor.preHandle(request, new MockHttpServletResponse(), handler);
+        Member member = em.find(Member.class, id);
+        boolean readOnlyDuringRequest = session.isDefaultReadOnly();
+        FlushMode flushModeDuringRequest = session.getHibernateFlushMode();
+        member.setUsername("changed");
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), handler, null);
+        QueryCountExtension.reset();
+        em.flush();
+
+        //then
+        assertThat(readOnlyDuringRequest).isTrue();
+        assertThat(flushModeDuringRequest).isEqualTo(FlushMode.MANUAL);
+        //스냅샷이 없으므로 변경 감지 안됨
+        assertThat(session.isReadOnly(member)).isTrue();
+        assertUpdateCount(0);
+        //요청이 끝나면 원래대로
+        assertThat(session.isDefaultReadOnly()).isFalse();
+        assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.AUTO);
+    }
+
+    @Test
+    public void otherHandlersAreUntouched() throws Exception {
+        //given
+        Session session = em.unwrap(Session.class);
+        ReadOnlyRequestInterceptor interceptor = new ReadOnlyRequestInterceptor(emf);
+        HandlerMethod handler = new HandlerMethod(memberController,
+                MemberController.class.getMethod("export", MemberExportWriter.Format.class));
+
+        //when
+        interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), handler);
+
+        //then
+        assertThat(session.isDefaultReadOnly()).isFalse();
+        assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.AUTO);
+    }
+
+    @Test
+    public void readOnlyRequestRestoresSession() throws Exception {
+        //given
+        Long id = memberRepository.save(new Member("readOnly2", 10)).getId();
+        em.flush();
+        em.clear();
+
+        //when
+        mockMvc.perform(get("/members2/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(content().string("readOnly2"));
+
+        //then
+        //같은 테스트 트랜잭션의 영속성 컨텍스트, 요청이 끝나면 다시 수정 가능
+        //요청 중에 읽은 엔티티는 읽기 전용으로 남아있으므로 비우고 다시 조회 (실제 요청은 OSIV가 닫음)
+        em.clear();
+        Member member = memberRepository.findById(id).get();
+        member.setUsername("afterRequest");
+        QueryCountExtension.reset();
+        em.flush();
+        assertUpdateCount(1);
+    }
+}